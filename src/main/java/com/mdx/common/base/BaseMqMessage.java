@@ -1,25 +1,93 @@
 package com.mdx.common.base;
 
+import com.mdx.common.util.KeyGenerator;
+import com.mdx.common.util.TimeOrderedKeyGenerator;
 import lombok.Data;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
 
+/**
+ * mq 消息基类
+ * <p>
+ * key 在构建消息时生成，发送前即可读取。消费端反序列化通过 {@link #withoutKeyGeneration(Supplier)} 构建，
+ * 不产生生成开销，只读取消息中携带的key；RocketMQEnhanceConfig 中的消息转换器已按此方式反序列化
+ */
 @Data
 public abstract class BaseMqMessage {
+
+    private static final AtomicReferenceFieldUpdater<BaseMqMessage, String> KEY_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(BaseMqMessage.class, String.class, "key");
+
+    private static volatile KeyGenerator keyGenerator = TimeOrderedKeyGenerator.INSTANCE;
+
     /**
-     * 业务键，用于RocketMQ控制台查看消费情况
+     * 当前线程正在反序列化消息，构建时不生成key
      */
-    protected String key = UUID.randomUUID().toString();
+    private static final ThreadLocal<Boolean> KEY_GENERATION_SKIPPED = new ThreadLocal<>();
+
+    /**
+     * 业务键，用于RocketMQ控制台查看消费情况，构建时生成
+     */
+    protected volatile String key;
 
     /**
      * 发送消息来源，用于排查问题
      */
     protected String source = "";
     /**
-     * 发送时间
+     * 发送时间，默认为消息创建时间
      */
     protected LocalDateTime sendTime = LocalDateTime.now();
 
+    protected BaseMqMessage() {
+        if (KEY_GENERATION_SKIPPED.get() == null) {
+            this.key = keyGenerator.nextKey();
+        }
+    }
+
+    /**
+     * 替换全局key生成器
+     *
+     * @param generator key生成器
+     */
+    public static void setKeyGenerator(KeyGenerator generator) {
+        if (generator == null) {
+            throw new IllegalArgumentException("key生成器不能为空");
+        }
+        keyGenerator = generator;
+    }
 
-}
\ No newline at end of file
+    /**
+     * 构建消息时不生成key，用于反序列化，key随后由消息内容填充
+     *
+     * @param factory 构建消息，如调用json反序列化
+     * @return 构建结果
+     */
+    public static <T> T withoutKeyGeneration(Supplier<T> factory) {
+        Boolean previous = KEY_GENERATION_SKIPPED.get();
+        KEY_GENERATION_SKIPPED.set(Boolean.TRUE);
+        try {
+            return factory.get();
+        } finally {
+            if (previous == null) {
+                KEY_GENERATION_SKIPPED.remove();
+            }
+        }
+    }
+
+    /**
+     * 未设置key时生成key，并发调用只会生成一次。key被置空或反序列化的消息没有key时使用
+     *
+     * @return key
+     */
+    public String ensureKey() {
+        String current = key;
+        if (current == null) {
+            KEY_UPDATER.compareAndSet(this, null, keyGenerator.nextKey());
+            current = key;
+        }
+        return current;
+    }
+}
@@ -1,21 +1,42 @@
 package com.mdx.common.config;
 
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mdx.common.manager.MqIdempotentStore;
+import com.mdx.common.metrics.MicrometerMqConsumerMetrics;
+import com.mdx.common.metrics.MicrometerMqProducerMetrics;
+import com.mdx.common.metrics.MicrometerRedisMetrics;
+import com.mdx.common.metrics.MqConsumerMetrics;
+import com.mdx.common.metrics.MqProducerMetrics;
+import com.mdx.common.metrics.MqSendMetricsHook;
+import com.mdx.common.metrics.RedisMetrics;
 import com.mdx.common.manager.RedisManager;
+import com.mdx.common.manager.RedisNearCache;
+import com.mdx.common.manager.RedisReadRouter;
+import com.mdx.common.util.LocalDateUtil;
 import com.mdx.common.util.SpringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
-import org.redisson.config.Config;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
+@EnableConfigurationProperties({MdxRedisProperties.class, MdxRedissonProperties.class, MdxRocketMqProperties.class})
 public class AutoConfigurationMdxCommon {
 
     @Bean
@@ -28,24 +49,23 @@ public class AutoConfigurationMdxCommon {
         return new RocketMqTemplate();
     }
 
+    /**
+     * redis value 序列化，默认与原json格式一致，可通过 mdx.redis.serializer 切换格式和压缩
+     */
     @Bean
-    @SuppressWarnings("all")
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
+    public MdxRedisSerializer mdxRedisSerializer(MdxRedisProperties properties, ObjectProvider<RedisMetrics> redisMetrics) {
+        MdxRedisSerializer serializer = new MdxRedisSerializer(properties.getSerializer());
+        redisMetrics.ifAvailable(serializer::setMetrics);
+        return serializer;
+    }
+
+    @Bean
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory, MdxRedisSerializer mdxRedisSerializer) {
 
         RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
 
         template.setConnectionFactory(factory);
 
-        Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer(Object.class);
-
-        ObjectMapper om = new ObjectMapper();
-
-        om.setVisibility(PropertyAccessor.ALL, com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.ANY);
-
-        om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
-
-        jackson2JsonRedisSerializer.setObjectMapper(om);
-
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
 
         // key采用String的序列化方式
@@ -58,11 +78,11 @@ public class AutoConfigurationMdxCommon {
 
         // value序列化方式采用jackson
 
-        template.setValueSerializer(jackson2JsonRedisSerializer);
+        template.setValueSerializer(mdxRedisSerializer);
 
         // hash的value序列化方式采用jackson
 
-        template.setHashValueSerializer(jackson2JsonRedisSerializer);
+        template.setHashValueSerializer(mdxRedisSerializer);
 
         template.afterPropertiesSet();
 
@@ -70,13 +90,22 @@ public class AutoConfigurationMdxCommon {
 
     }
 
+    /**
+     * redisson 客户端，按 mdx.redisson 配置，未配置的连接信息取 spring.redis。
+     * 延迟到第一次使用时创建，不使用锁和原子数的服务启动时不建立连接
+     */
+    @Bean(destroyMethod = "shutdown")
+    @Lazy
+    public RedissonClient redissonClient(MdxRedissonProperties properties, ObjectProvider<RedisProperties> redisProperties) {
+        return Redisson.create(RedissonConfigBuilder.build(properties, redisProperties.getIfAvailable()));
+    }
+
+    /**
+     * mq 幂等消费记录，监听器 idempotent() 返回true时使用
+     */
     @Bean
-    public RedissonClient redissonClient(){
-        //配置
-        Config config = new Config();
-        config.useSingleServer().setAddress("redis://192.168.0.107:6379").setPassword("999666admin1234").setDatabase(13);
-        //创建RedissonClient对象
-        return Redisson.create(config);
+    public MqIdempotentStore mqIdempotentStore(RedisTemplate<String, Object> redisTemplate, MdxRocketMqProperties properties) {
+        return new MqIdempotentStore(redisTemplate, properties.getIdempotent());
     }
 
     @Bean
@@ -84,4 +113,94 @@ public class AutoConfigurationMdxCommon {
         return new SpringUtils();
     }
 
+    /**
+     * redis 本地近端缓存，mdx.redis.near-cache.enabled=true 时开启
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "mdx.redis.near-cache", name = "enabled", havingValue = "true")
+    public static class NearCacheConfiguration {
+
+        @Bean
+        public RedisNearCache redisNearCache(RedisTemplate<String, Object> redisTemplate, MdxRedisProperties properties) {
+            return new RedisNearCache(redisTemplate, properties.getNearCache());
+        }
+
+        @Bean
+        public RedisMessageListenerContainer nearCacheListenerContainer(RedisConnectionFactory factory,
+                                                                        RedisNearCache redisNearCache,
+                                                                        MdxRedisProperties properties) {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(factory);
+            container.addMessageListener(redisNearCache, new ChannelTopic(properties.getNearCache().getChannel()));
+            return container;
+        }
+    }
+
+    /**
+     * RedisManager.readOnly() 从节点读取，mdx.redis.read.enabled=true 时开启，需要lettuce连接
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "mdx.redis.read", name = "enabled", havingValue = "true")
+    public static class ReadReplicaConfiguration {
+
+        @Bean
+        public RedisReadRouter redisReadRouter(RedisTemplate<String, Object> redisTemplate, RedisConnectionFactory factory,
+                                               MdxRedisProperties properties) {
+            if (!(factory instanceof LettuceConnectionFactory)) {
+                throw new IllegalStateException("redis从节点读取需要使用lettuce连接");
+            }
+            return new RedisReadRouter(redisTemplate, (LettuceConnectionFactory) factory, properties.getRead());
+        }
+    }
+
+    /**
+     * RedisManager 操作指标，引入micrometer-core时开启，mdx.redis.metrics.enabled=false 可关闭
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "mdx.redis.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public static class RedisMetricsConfiguration {
+
+        @Bean
+        public RedisMetrics redisMetrics(ObjectProvider<MeterRegistry> meterRegistry, MdxRedisProperties properties) {
+            return new MicrometerRedisMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                    properties.getMetrics().getKeyPrefixes());
+        }
+    }
+
+    /**
+     * mq 消费指标，引入micrometer-core时开启，mdx.rocketmq.metrics.enabled=false 可关闭
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "mdx.rocketmq.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public static class MqMetricsConfiguration {
+
+        @Bean
+        public MqConsumerMetrics mqConsumerMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            return new MicrometerMqConsumerMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                    LocalDateUtil.zoneId);
+        }
+
+        @Bean
+        public MqProducerMetrics mqProducerMetrics(ObjectProvider<MeterRegistry> meterRegistry, MdxRocketMqProperties properties) {
+            return new MicrometerMqProducerMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                    properties.getMetrics().getMaxDestinations());
+        }
+
+        /**
+         * 在生产者上注册发送钩子，记录消息大小和包括重试在内的每次请求结果
+         */
+        @Bean
+        public SmartInitializingSingleton mqSendMetricsHookRegistrar(ObjectProvider<RocketMQTemplate> templates,
+                                                                     MqProducerMetrics mqProducerMetrics) {
+            return () -> templates.orderedStream().forEach(template -> {
+                if (template.getProducer() != null) {
+                    template.getProducer().getDefaultMQProducerImpl()
+                            .registerSendMessageHook(new MqSendMetricsHook(mqProducerMetrics));
+                }
+            });
+        }
+    }
+
 }
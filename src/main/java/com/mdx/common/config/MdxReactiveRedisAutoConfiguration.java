@@ -0,0 +1,45 @@
+package com.mdx.common.config;
+
+import com.mdx.common.manager.ReactiveRedisManager;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * 非阻塞 redis，存在 ReactiveRedisConnectionFactory(lettuce连接)时开启，与 redisTemplate 使用同一个value序列化。
+ * 使用jedis连接时没有该连接工厂，不创建任何bean
+ */
+@Configuration
+@AutoConfigureAfter({AutoConfigurationMdxCommon.class, RedisReactiveAutoConfiguration.class})
+@ConditionalOnClass(name = {"reactor.core.publisher.Flux", "io.lettuce.core.RedisClient"})
+@ConditionalOnBean({ReactiveRedisConnectionFactory.class, MdxRedisSerializer.class})
+public class MdxReactiveRedisAutoConfiguration {
+
+    @Bean
+    public ReactiveRedisTemplate<String, Object> mdxReactiveRedisTemplate(ReactiveRedisConnectionFactory factory,
+                                                                          MdxRedisSerializer mdxRedisSerializer) {
+        StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(stringRedisSerializer)
+                .key(stringRedisSerializer)
+                .value(mdxRedisSerializer)
+                .hashKey(stringRedisSerializer)
+                .hashValue(mdxRedisSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
+
+    @Bean
+    public ReactiveRedisManager reactiveRedisManager(ReactiveRedisTemplate<String, Object> mdxReactiveRedisTemplate,
+                                                     MdxRedisSerializer mdxRedisSerializer,
+                                                     MdxRedisProperties properties) {
+        return new ReactiveRedisManager(mdxReactiveRedisTemplate, mdxRedisSerializer, properties.getChunk());
+    }
+}
@@ -0,0 +1,264 @@
+package com.mdx.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * redis 扩展配置
+ */
+@Data
+@ConfigurationProperties(prefix = "mdx.redis")
+public class MdxRedisProperties {
+
+    /**
+     * 批量操作单次管道提交的最大key数量，超出部分拆分为多次提交，避免阻塞redis
+     */
+    private int batchSize = 500;
+
+    /**
+     * 本地近端缓存配置
+     */
+    private NearCache nearCache = new NearCache();
+
+    /**
+     * getOrLoad 缓存加载配置
+     */
+    private Loader loader = new Loader();
+
+    /**
+     * value 序列化配置
+     */
+    private Serializer serializer = new Serializer();
+
+    /**
+     * IdManager 编号生成配置
+     */
+    private IdGenerator idGenerator = new IdGenerator();
+
+    /**
+     * 操作指标配置，引入micrometer-core后生效
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * scan 遍历及按通配符批量操作配置
+     */
+    private Scan scan = new Scan();
+
+    /**
+     * RedisManager.readOnly() 从节点读取配置
+     */
+    private Read read = new Read();
+
+    /**
+     * 普通缓存大value分片配置，RedisManager、异步视图与 ReactiveRedisManager 共用。
+     * 开启后普通缓存的写入、删除(含批量与按通配符)和设置过期时间都经过脚本同步处理分片
+     */
+    private Chunk chunk = new Chunk();
+
+    @Data
+    public static class NearCache {
+        /**
+         * 是否开启本地近端缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 需要走本地缓存的key前缀，未匹配的key不会被缓存
+         */
+        private List<String> prefixes = new ArrayList<>();
+
+        /**
+         * 本地缓存最大条数
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 本地缓存最长存活时间(秒)，带过期时间写入的key取两者较小值
+         */
+        private long ttlSeconds = 30;
+
+        /**
+         * 失效广播频道
+         */
+        private String channel = "mdx:near-cache:invalidate";
+    }
+
+    @Data
+    public static class Loader {
+        /**
+         * 等待其他节点加载的最长时间(毫秒)，超时后直接加载
+         */
+        private int lockWaitMillis = 3000;
+
+        /**
+         * 加载锁自动释放时间(毫秒)，应大于数据源加载耗时
+         */
+        private int lockLeaseMillis = 10000;
+
+        /**
+         * 空值缓存时间(秒)，小于等于0表示不缓存空值
+         */
+        private long nullTtlSeconds = 0;
+
+        /**
+         * 提前刷新系数，越大越早刷新，0表示关闭提前刷新
+         */
+        private double beta = 1.0;
+    }
+
+    @Data
+    public static class Serializer {
+        /**
+         * 内容格式
+         */
+        private Format format = Format.JSON;
+
+        /**
+         * 压缩方式
+         */
+        private RedisCompression compression = RedisCompression.NONE;
+
+        /**
+         * 超过该字节数才压缩
+         */
+        private int compressThreshold = 4096;
+
+        /**
+         * 类型编号 -> 全类名，注册后根对象写入类型编号代替全类名，内层声明为Object、接口、抽象类的字段仍带全类名。
+         * 注册类型作为内层字段时按声明类型读写，字段声明为注册类型时不能存放其子类
+         */
+        private Map<Integer, String> typeIds = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class IdGenerator {
+        /**
+         * 机器号租约key前缀，完整key为 前缀 + 机器号
+         */
+        private String workerKeyPrefix = "id:worker:";
+
+        /**
+         * 机器号租约时间(秒)，每1/3租约时间续期一次。关闭释放后租约记录最后编号时间并保留同样时间
+         */
+        private long leaseSeconds = 60;
+
+        /**
+         * 时间戳起点(毫秒)，上线后不可修改，默认2024-01-01 00:00:00 UTC
+         */
+        private long epochMillis = 1704067200000L;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * 是否记录 RedisManager 操作指标
+         */
+        private boolean enabled = true;
+
+        /**
+         * 作为prefix标签的key前缀，按顺序匹配，未匹配的key标记为other，用于限制标签数量
+         */
+        private List<String> keyPrefixes = new ArrayList<>();
+    }
+
+    @Data
+    public static class Scan {
+        /**
+         * 单次SCAN的COUNT提示，越大往返越少，单次阻塞越久
+         */
+        private int count = 500;
+
+        /**
+         * delByPattern / expireByPattern 每秒最多处理的key数量，小于等于0表示不限速
+         */
+        private long maxKeysPerSecond = 10000;
+    }
+
+    @Data
+    public static class Read {
+        /**
+         * 是否开启从节点读取，需要lettuce连接，未开启时 readOnly() 全部读主节点
+         */
+        private boolean enabled = false;
+
+        /**
+         * 未匹配前缀的key的读取路由
+         */
+        private ReadRoute defaultRoute = ReadRoute.PRIMARY;
+
+        /**
+         * key前缀 -> 读取路由，按配置顺序匹配第一个。yml中含冒号的前缀需写成 "[user:]"
+         */
+        private Map<String, ReadRoute> routes = new LinkedHashMap<>();
+
+        /**
+         * 本节点写入key后该时间内(毫秒)读取同一个key仍走主节点，避免读不到自己刚写入的值，0表示不限制
+         */
+        private long readYourWritesMillis = 1000;
+
+        /**
+         * 最多记录的最近写入key数量，超出后较早的记录被淘汰
+         */
+        private long recentWritesMaximumSize = 100000;
+    }
+
+    @Data
+    public static class Chunk {
+        /**
+         * 是否开启分片，压缩沿用 serializer.compression 及 compress-threshold，先压缩再判断是否分片。
+         * 未开启的节点通过 RedisManager 仍能读取其他节点写入的分片；直接用 redisTemplate 读取分片key会抛出 SerializationException
+         */
+        private boolean enabled = false;
+
+        /**
+         * 序列化(及压缩)后达到该大小(字节)的value拆分为多个分片key，原key只保存分片清单
+         */
+        private int thresholdBytes = 512 * 1024;
+
+        /**
+         * 单个分片大小(字节)
+         */
+        private int chunkBytes = 128 * 1024;
+
+        /**
+         * 覆盖或删除后旧分片保留的时间(秒)，让正在读取旧清单的请求读完，小于等于0表示立即删除。
+         * 分片的过期时间总是比清单多出该时间，expire 时一并延长
+         */
+        private long graceSeconds = 60;
+    }
+
+    public enum ReadRoute {
+        /**
+         * 只读主节点，数据最新
+         */
+        PRIMARY,
+
+        /**
+         * 优先读从节点，没有可用从节点时读主节点，可能读到复制延迟内的旧数据
+         */
+        REPLICA_PREFERRED,
+
+        /**
+         * 只读从节点，没有可用从节点时报错，可能读到复制延迟内的旧数据
+         */
+        REPLICA
+    }
+
+    public enum Format {
+        /**
+         * json，默认与原有格式一致
+         */
+        JSON,
+
+        /**
+         * smile二进制json，需要引入jackson-dataformat-smile
+         */
+        SMILE
+    }
+}
@@ -0,0 +1,315 @@
+package com.mdx.common.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mdx.common.metrics.RedisMetrics;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * redis value 序列化
+ * <p>
+ * 默认配置下写出的内容与原 Jackson2JsonRedisSerializer 完全一致。
+ * 注册了类型编号、使用smile或触发压缩时，写出带数据头的紧凑格式：
+ * 魔数(1字节) + 标志(1字节) + 类型编号(varint) + [压缩前长度(varint)] + 内容。
+ * 注册过的类型用类型编号代替根对象的全类名，内层声明为Object、接口、抽象类的字段仍带全类名，与原json一致；
+ * 没有魔数的内容按原json读取，迁移期间新老数据均可读取。
+ * 以 {@link RedisChunkManifest#MAGIC} 开头的内容为大value分片清单，只能通过 RedisManager 及其视图读取，
+ * 直接用 redisTemplate 读取时抛出 SerializationException，不会把清单当作值返回。
+ * 注意：读取紧凑格式的节点需要先于写入节点升级
+ */
+public class MdxRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * 紧凑格式魔数，json文本不会以该字节开头
+     */
+    public static final byte MAGIC = (byte) 0xA7;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * 标志低2位：内容格式
+     */
+    private static final int BODY_TYPED_JSON = 0;
+    private static final int BODY_JSON = 1;
+    private static final int BODY_TYPED_SMILE = 2;
+    private static final int BODY_SMILE = 3;
+
+    /**
+     * 标志第2位：注册类型只省略根对象的全类名，内层值按原json带全类名。
+     * 未设置的为早期写入，内层值不带类型信息，按原方式读取
+     */
+    private static final int NESTED_TYPED = 0x4;
+
+    /**
+     * 标志4-5位：压缩方式
+     */
+    private static final int COMPRESSION_SHIFT = 4;
+
+    private final ObjectMapper typedJsonMapper = typedObjectMapper(new JsonFactory());
+
+    private final ObjectMapper jsonMapper = plainObjectMapper(new JsonFactory());
+
+    private final ObjectMapper nestedJsonMapper = nestedTypedObjectMapper(new JsonFactory());
+
+    private volatile ObjectMapper nestedSmileMapper;
+
+    private final boolean smile;
+
+    private final RedisCompression compression;
+
+    private final int compressThreshold;
+
+    private final Map<Class<?>, Integer> classToId = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Class<?>> idToClass = new ConcurrentHashMap<>();
+
+    private volatile RedisMetrics metrics = RedisMetrics.NOOP;
+
+    public MdxRedisSerializer(MdxRedisProperties.Serializer properties) {
+        this.smile = properties.getFormat() == MdxRedisProperties.Format.SMILE;
+        this.compression = properties.getCompression();
+        this.compressThreshold = properties.getCompressThreshold();
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        for (Map.Entry<Integer, String> entry : properties.getTypeIds().entrySet()) {
+            try {
+                register(entry.getKey(), ClassUtils.forName(entry.getValue(), classLoader));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("redis类型编号[" + entry.getKey() + "]对应的类不存在：" + entry.getValue(), e);
+            }
+        }
+    }
+
+    /**
+     * 注册类型编号，编号写入redis后不可修改含义，需在序列化前完成注册
+     *
+     * @param typeId 类型编号 大于0
+     * @param type   类型
+     */
+    public void register(int typeId, Class<?> type) {
+        if (typeId <= 0) {
+            throw new IllegalArgumentException("redis类型编号必须大于0：" + typeId);
+        }
+        Class<?> exist = idToClass.putIfAbsent(typeId, type);
+        if (exist != null && exist != type) {
+            throw new IllegalArgumentException("redis类型编号[" + typeId + "]重复：" + exist.getName() + "，" + type.getName());
+        }
+        classToId.put(type, typeId);
+    }
+
+    /**
+     * 设置指标，记录序列化后的value大小
+     */
+    public void setMetrics(RedisMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        try {
+            Integer typeId = classToId.get(value.getClass());
+            int body;
+            if (typeId == null) {
+                body = smile ? BODY_TYPED_SMILE : BODY_TYPED_JSON;
+            } else {
+                body = smile ? BODY_SMILE : BODY_JSON;
+            }
+            boolean nested = typeId != null;
+            byte[] data = mapper(body, nested).writeValueAsBytes(value);
+            byte[] payload = data;
+            boolean compressed = false;
+            if (compression != RedisCompression.NONE && data.length >= compressThreshold) {
+                byte[] compressedData = compression.compress(data);
+                if (compressedData.length < data.length) {
+                    payload = compressedData;
+                    compressed = true;
+                }
+            }
+            if (body == BODY_TYPED_JSON && !compressed) {
+                metrics.payload(true, data.length);
+                return data;
+            }
+            int id = typeId == null ? 0 : typeId;
+            int headerLength = 2 + varintSize(id) + (compressed ? varintSize(data.length) : 0);
+            byte[] result = new byte[headerLength + payload.length];
+            result[0] = MAGIC;
+            result[1] = (byte) (body | (nested ? NESTED_TYPED : 0)
+                    | (compressed ? compression.getCode() << COMPRESSION_SHIFT : 0));
+            int position = writeVarint(result, 2, id);
+            if (compressed) {
+                position = writeVarint(result, position, data.length);
+            }
+            System.arraycopy(payload, 0, result, position, payload.length);
+            metrics.payload(true, result.length);
+            return result;
+        } catch (IOException e) {
+            throw new SerializationException("Could not write JSON: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (RedisChunkManifest.isManifest(bytes)) {
+            throw new SerializationException("redis value为大value分片清单，需通过 RedisManager 读取");
+        }
+        metrics.payload(false, bytes.length);
+        try {
+            if (bytes[0] != MAGIC) {
+                return typedJsonMapper.readValue(bytes, 0, bytes.length, Object.class);
+            }
+            int flags = bytes[1];
+            int body = flags & 0x3;
+            boolean nested = (flags & NESTED_TYPED) != 0;
+            RedisCompression bodyCompression = RedisCompression.of((flags >> COMPRESSION_SHIFT) & 0x3);
+            int[] position = {2};
+            int typeId = readVarint(bytes, position);
+            byte[] data = bytes;
+            int offset = position[0];
+            int length = bytes.length - offset;
+            if (bodyCompression != RedisCompression.NONE) {
+                int rawLength = readVarint(bytes, position);
+                data = bodyCompression.decompress(bytes, position[0], bytes.length - position[0], rawLength);
+                offset = 0;
+                length = rawLength;
+            }
+            if (typeId == 0) {
+                return mapper(body, nested).readValue(data, offset, length, Object.class);
+            }
+            Class<?> type = idToClass.get(typeId);
+            if (type == null) {
+                throw new SerializationException("未注册的redis类型编号：" + typeId);
+            }
+            return mapper(body, nested).readValue(data, offset, length, type);
+        } catch (IOException e) {
+            throw new SerializationException("Could not read JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private ObjectMapper mapper(int body, boolean nested) {
+        if (nested) {
+            return body == BODY_SMILE ? nestedSmileMapper() : nestedJsonMapper;
+        }
+        switch (body) {
+            case BODY_JSON:
+                return jsonMapper;
+            case BODY_TYPED_SMILE:
+                return SmileMappers.TYPED;
+            case BODY_SMILE:
+                return SmileMappers.PLAIN;
+            default:
+                return typedJsonMapper;
+        }
+    }
+
+    /**
+     * 带全类名的mapper，与原 redisTemplate 的配置一致
+     */
+    public static ObjectMapper typedObjectMapper(JsonFactory factory) {
+        ObjectMapper om = new ObjectMapper(factory);
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
+        return om;
+    }
+
+    /**
+     * 注册类型的mapper：注册过的类型不写全类名，由类型编号确定；其他非final类型与原配置一样带全类名
+     */
+    private ObjectMapper nestedTypedObjectMapper(JsonFactory factory) {
+        ObjectMapper om = plainObjectMapper(factory);
+        TypeResolverBuilder<?> typer = new ObjectMapper.DefaultTypeResolverBuilder(ObjectMapper.DefaultTyping.NON_FINAL) {
+            @Override
+            public boolean useForType(JavaType t) {
+                return !classToId.containsKey(t.getRawClass()) && super.useForType(t);
+            }
+        };
+        om.setDefaultTyping(typer.init(JsonTypeInfo.Id.CLASS, null).inclusion(JsonTypeInfo.As.WRAPPER_ARRAY));
+        return om;
+    }
+
+    private ObjectMapper nestedSmileMapper() {
+        ObjectMapper mapper = nestedSmileMapper;
+        if (mapper == null) {
+            synchronized (this) {
+                mapper = nestedSmileMapper;
+                if (mapper == null) {
+                    mapper = nestedTypedObjectMapper(SmileMappers.factory());
+                    nestedSmileMapper = mapper;
+                }
+            }
+        }
+        return mapper;
+    }
+
+    /**
+     * 不带全类名的mapper，只用于读取早期写入的注册类型
+     */
+    private static ObjectMapper plainObjectMapper(JsonFactory factory) {
+        ObjectMapper om = new ObjectMapper(factory);
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return om;
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int writeVarint(byte[] target, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    static int readVarint(byte[] source, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (position[0] >= source.length || shift > 28) {
+                throw new SerializationException("redis数据头格式错误");
+            }
+            b = source[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * smile 为可选依赖，用到时才加载
+     */
+    private static final class SmileMappers {
+        private static final ObjectMapper TYPED = typedObjectMapper(new SmileFactory());
+        private static final ObjectMapper PLAIN = plainObjectMapper(new SmileFactory());
+
+        private static JsonFactory factory() {
+            return new SmileFactory();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.mdx.common.config;
+
+import lombok.Data;
+import org.redisson.config.ReadMode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * redisson 客户端配置
+ * <p>
+ * 未配置的地址、账号、密码取 spring.redis 下的配置，两边都未配置地址时连接 redis://127.0.0.1:6379。
+ * 库号不取 spring.redis.database，默认沿用原固定配置的13
+ */
+@Data
+@ConfigurationProperties(prefix = "mdx.redisson")
+public class MdxRedissonProperties {
+
+    /**
+     * 部署模式，未配置时按 spring.redis 推断：配置了cluster为集群，配置了sentinel为哨兵，否则为单机
+     */
+    private Mode mode;
+
+    /**
+     * 节点地址，如 redis://127.0.0.1:6379 ，未写协议时补 redis://
+     * 单机取第一个，哨兵为哨兵地址，集群和云托管为全部节点地址
+     */
+    private List<String> addresses = new ArrayList<>();
+
+    /**
+     * 哨兵模式的主节点名称
+     */
+    private String masterName;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * 库号，集群模式不支持。默认13与升级前写死的库号一致，RedissonUtil 的 RAtomicLong、SegmentCounter 计数和分布式锁都在该库中，
+     * 修改后原有计数从0开始，可能生成重复id，迁移时需先把计数key复制到新库
+     */
+    private int database = 13;
+
+    /**
+     * 读请求路由：MASTER 只读主节点，SLAVE 只读从节点，MASTER_SLAVE 主从都读。单机模式不生效
+     */
+    private ReadMode readMode = ReadMode.MASTER;
+
+    /**
+     * 每个节点的连接池大小，主从模式下主节点和从节点各一个池
+     */
+    private int connectionPoolSize = 64;
+
+    /**
+     * 每个节点的最小空闲连接数
+     */
+    private int connectionMinimumIdleSize = 24;
+
+    /**
+     * 每个节点的发布订阅连接池大小，锁等待依赖订阅连接
+     */
+    private int subscriptionConnectionPoolSize = 50;
+
+    /**
+     * 命令超时时间(毫秒)
+     */
+    private int timeout = 3000;
+
+    /**
+     * 建立连接超时时间(毫秒)
+     */
+    private int connectTimeout = 10000;
+
+    /**
+     * 命令失败重试次数
+     */
+    private int retryAttempts = 3;
+
+    /**
+     * 命令重试间隔(毫秒)
+     */
+    private int retryInterval = 1500;
+
+    /**
+     * 空闲连接超时时间(毫秒)，超出最小空闲数的连接空闲该时间后关闭
+     */
+    private int idleConnectionTimeout = 10000;
+
+    /**
+     * 连接心跳间隔(毫秒)，0表示关闭
+     */
+    private int pingConnectionInterval = 30000;
+
+    /**
+     * 处理回调和锁续期的线程数，0表示 cpu核数 * 2
+     */
+    private int threads = 16;
+
+    /**
+     * netty io线程数，0表示 cpu核数 * 2
+     */
+    private int nettyThreads = 32;
+
+    /**
+     * 编解码器全类名，需有无参构造，如 org.redisson.codec.JsonJacksonCodec ，未配置使用redisson默认编解码器。
+     * 已有数据的环境修改后旧数据无法读取
+     */
+    private String codec;
+
+    public enum Mode {
+        /**
+         * 单机
+         */
+        SINGLE,
+
+        /**
+         * 哨兵
+         */
+        SENTINEL,
+
+        /**
+         * 集群
+         */
+        CLUSTER,
+
+        /**
+         * 云托管主从，如 AWS ElastiCache、阿里云主从版
+         */
+        REPLICATED
+    }
+}
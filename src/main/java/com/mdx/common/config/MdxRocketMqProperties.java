@@ -0,0 +1,105 @@
+package com.mdx.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * rocketmq 扩展配置
+ */
+@Data
+@ConfigurationProperties(prefix = "mdx.rocketmq")
+public class MdxRocketMqProperties {
+
+    /**
+     * 批量发送配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 幂等消费配置
+     */
+    private Idempotent idempotent = new Idempotent();
+
+    /**
+     * 发送日志配置
+     */
+    private Audit audit = new Audit();
+
+    /**
+     * 指标配置，引入micrometer-core后生效
+     */
+    private Metrics metrics = new Metrics();
+
+    @Data
+    public static class Batch {
+        /**
+         * 单批最大消息条数
+         */
+        private int maxCount = 128;
+
+        /**
+         * 单批最大字节数，需小于broker的maxMessageSize
+         */
+        private int maxBytes = 1024 * 1024;
+
+        /**
+         * 未凑满一批时最长等待时间(毫秒)
+         */
+        private long lingerMillis = 5;
+    }
+
+    @Data
+    public static class Idempotent {
+        /**
+         * 去重key前缀，完整key为 前缀 + 消费者名称 + : + 消息key
+         */
+        private String keyPrefix = "mq:idempotent:";
+
+        /**
+         * 消费成功后去重记录保留时间(秒)，应覆盖mq最大重试间隔
+         */
+        private long ttlSeconds = 24 * 60 * 60;
+
+        /**
+         * 消费中记录保留时间(秒)，应略大于消费超时时间。进程在消费中退出时记录到期后重投的消息可以再次消费
+         */
+        private long processingTtlSeconds = 15 * 60;
+    }
+
+    @Data
+    public static class Audit {
+        /**
+         * 记录消息内容的采样比例，0-1，未采中的只记录key和发送结果。
+         * 采中的消息在发送线程序列化，顺序发送日志为INFO级别，生产环境同样生效，调大前注意发送耗时
+         */
+        private double payloadSampleRate = 0.01;
+
+        /**
+         * 消息内容最大记录长度，超出部分截断
+         */
+        private int maxPayloadLength = 2048;
+
+        /**
+         * 是否异步写日志，开启后写日志在后台线程完成，采样的消息内容仍在发送线程序列化
+         */
+        private boolean async = true;
+
+        /**
+         * 异步队列长度，队列满时丢弃日志，丢弃条数记录在 mdx.mq.send.audit.dropped
+         */
+        private int queueCapacity = 8192;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * 是否记录mq指标
+         */
+        private boolean enabled = true;
+
+        /**
+         * 发送指标中目的地、主题标签各自的数量上限，超出的记为other
+         */
+        private int maxDestinations = 200;
+    }
+}
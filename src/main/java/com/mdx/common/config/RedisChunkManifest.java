@@ -0,0 +1,112 @@
+package com.mdx.common.config;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 大value分片清单，保存在原key中
+ * <p>
+ * 格式：魔数(1字节) + 分片数(varint) + 总长度(varint) + 版本号。
+ * 分片key带版本号，每次写入生成新版本，先写分片再替换清单，读取方只会看到完整的某一版
+ */
+public final class RedisChunkManifest {
+
+    /**
+     * 清单魔数，json文本和 {@link MdxRedisSerializer#MAGIC} 都不会以该字节开头
+     */
+    public static final byte MAGIC = (byte) 0xA8;
+
+    private final String version;
+
+    private final int chunkCount;
+
+    private final int totalLength;
+
+    public RedisChunkManifest(String version, int chunkCount, int totalLength) {
+        this.version = version;
+        this.chunkCount = chunkCount;
+        this.totalLength = totalLength;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public int getTotalLength() {
+        return totalLength;
+    }
+
+    /**
+     * 分片key
+     *
+     * @param key   原key
+     * @param index 分片下标 从0开始
+     * @return 分片key
+     */
+    public String chunkKey(String key, int index) {
+        return key + ":chunk:" + version + ":" + index;
+    }
+
+    /**
+     * 拼接分片内容
+     *
+     * @param parts 按下标排列的分片内容
+     * @return 完整内容，分片缺失或长度不符时返回null
+     */
+    public byte[] join(List<?> parts) {
+        if (parts == null || parts.size() != chunkCount) {
+            return null;
+        }
+        byte[] result = new byte[totalLength];
+        int position = 0;
+        for (Object part : parts) {
+            if (!(part instanceof byte[])) {
+                return null;
+            }
+            byte[] bytes = (byte[]) part;
+            if (position + bytes.length > totalLength) {
+                return null;
+            }
+            System.arraycopy(bytes, 0, result, position, bytes.length);
+            position += bytes.length;
+        }
+        return position == totalLength ? result : null;
+    }
+
+    public byte[] encode() {
+        byte[] versionBytes = version.getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[1 + MdxRedisSerializer.varintSize(chunkCount)
+                + MdxRedisSerializer.varintSize(totalLength) + versionBytes.length];
+        result[0] = MAGIC;
+        int position = MdxRedisSerializer.writeVarint(result, 1, chunkCount);
+        position = MdxRedisSerializer.writeVarint(result, position, totalLength);
+        System.arraycopy(versionBytes, 0, result, position, versionBytes.length);
+        return result;
+    }
+
+    public static boolean isManifest(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == MAGIC;
+    }
+
+    public static RedisChunkManifest decode(byte[] bytes) {
+        if (!isManifest(bytes)) {
+            throw new SerializationException("redis分片清单格式错误");
+        }
+        int[] position = {1};
+        int chunkCount = MdxRedisSerializer.readVarint(bytes, position);
+        int totalLength = MdxRedisSerializer.readVarint(bytes, position);
+        String version = new String(bytes, position[0], bytes.length - position[0], StandardCharsets.UTF_8);
+        return new RedisChunkManifest(version, chunkCount, totalLength);
+    }
+
+    @Override
+    public String toString() {
+        return "RedisChunkManifest{version=" + version + ", chunkCount=" + chunkCount + ", totalLength=" + totalLength + "}";
+    }
+}
@@ -0,0 +1,138 @@
+package com.mdx.common.config;
+
+import com.github.luben.zstd.Zstd;
+import net.jpountz.lz4.LZ4Factory;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * redis value 压缩方式
+ * <p>
+ * lz4、zstd 依赖为可选依赖，使用时需自行引入
+ */
+public enum RedisCompression {
+
+    /**
+     * 不压缩
+     */
+    NONE(0),
+
+    /**
+     * lz4，速度优先
+     */
+    LZ4(1) {
+        @Override
+        public byte[] compress(byte[] data) {
+            return Lz4.compress(data);
+        }
+
+        @Override
+        public byte[] decompress(byte[] src, int offset, int length, int rawLength) {
+            return Lz4.decompress(src, offset, rawLength);
+        }
+    },
+
+    /**
+     * zstd，压缩率优先
+     */
+    ZSTD(2) {
+        @Override
+        public byte[] compress(byte[] data) {
+            return ZstdCodec.compress(data);
+        }
+
+        @Override
+        public byte[] decompress(byte[] src, int offset, int length, int rawLength) {
+            return ZstdCodec.decompress(src, offset, length, rawLength);
+        }
+    };
+
+    private final int code;
+
+    RedisCompression(int code) {
+        this.code = code;
+    }
+
+    /**
+     * 写入数据头的编号
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * 压缩
+     *
+     * @param data 原始内容
+     * @return 压缩后内容
+     */
+    public byte[] compress(byte[] data) {
+        return data;
+    }
+
+    /**
+     * 解压
+     *
+     * @param src       压缩内容所在数组
+     * @param offset    起始位置
+     * @param length    压缩内容长度
+     * @param rawLength 压缩前长度
+     * @return 原始内容
+     */
+    public byte[] decompress(byte[] src, int offset, int length, int rawLength) {
+        byte[] data = new byte[length];
+        System.arraycopy(src, offset, data, 0, length);
+        return data;
+    }
+
+    /**
+     * 根据编号获取压缩方式
+     *
+     * @param code 编号
+     * @return 压缩方式
+     */
+    public static RedisCompression of(int code) {
+        for (RedisCompression compression : values()) {
+            if (compression.code == code) {
+                return compression;
+            }
+        }
+        throw new SerializationException("不支持的压缩方式：" + code);
+    }
+
+    /**
+     * 单独持有第三方类，未使用时不触发类加载
+     */
+    private static final class Lz4 {
+        private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+        static byte[] compress(byte[] data) {
+            return FACTORY.fastCompressor().compress(data);
+        }
+
+        static byte[] decompress(byte[] src, int offset, int rawLength) {
+            byte[] data = new byte[rawLength];
+            FACTORY.fastDecompressor().decompress(src, offset, data, 0, rawLength);
+            return data;
+        }
+    }
+
+    private static final class ZstdCodec {
+        private static final int LEVEL = 3;
+
+        static byte[] compress(byte[] data) {
+            return Zstd.compress(data, LEVEL);
+        }
+
+        static byte[] decompress(byte[] src, int offset, int length, int rawLength) {
+            byte[] data = new byte[rawLength];
+            long size = Zstd.decompressByteArray(data, 0, rawLength, src, offset, length);
+            if (Zstd.isError(size)) {
+                throw new SerializationException("zstd解压失败：" + Zstd.getErrorName(size));
+            }
+            if (size != rawLength) {
+                throw new SerializationException("zstd解压长度不一致，期望" + rawLength + "实际" + size);
+            }
+            return data;
+        }
+    }
+}
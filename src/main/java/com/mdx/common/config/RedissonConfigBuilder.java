@@ -0,0 +1,147 @@
+package com.mdx.common.config;
+
+import org.redisson.client.codec.Codec;
+import org.redisson.config.BaseConfig;
+import org.redisson.config.BaseMasterSlaveServersConfig;
+import org.redisson.config.Config;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 根据 mdx.redisson 生成 redisson 配置，未配置的地址和账号取 spring.redis
+ */
+final class RedissonConfigBuilder {
+
+    private static final String DEFAULT_ADDRESS = "redis://127.0.0.1:6379";
+
+    private RedissonConfigBuilder() {
+    }
+
+    /**
+     * @param properties mdx.redisson 配置
+     * @param fallback   spring.redis 配置，可以为null
+     * @return redisson 配置
+     */
+    static Config build(MdxRedissonProperties properties, RedisProperties fallback) {
+        Config config = new Config();
+        config.setThreads(properties.getThreads());
+        config.setNettyThreads(properties.getNettyThreads());
+        if (StringUtils.hasText(properties.getCodec())) {
+            config.setCodec(codec(properties.getCodec()));
+        }
+        MdxRedissonProperties.Mode mode = mode(properties, fallback);
+        String[] addresses = addresses(properties, fallback, mode);
+        String username = properties.getUsername() != null || fallback == null ? properties.getUsername() : fallback.getUsername();
+        String password = properties.getPassword() != null || fallback == null ? properties.getPassword() : fallback.getPassword();
+        int database = properties.getDatabase();
+        BaseConfig<?> servers;
+        switch (mode) {
+            case SENTINEL:
+                String masterName = properties.getMasterName();
+                if (masterName == null && fallback != null && fallback.getSentinel() != null) {
+                    masterName = fallback.getSentinel().getMaster();
+                }
+                if (!StringUtils.hasText(masterName)) {
+                    throw new IllegalStateException("redisson哨兵模式未配置主节点名称 mdx.redisson.master-name");
+                }
+                servers = masterSlave(config.useSentinelServers()
+                        .setMasterName(masterName)
+                        .addSentinelAddress(addresses)
+                        .setDatabase(database), properties);
+                break;
+            case CLUSTER:
+                servers = masterSlave(config.useClusterServers().addNodeAddress(addresses), properties);
+                break;
+            case REPLICATED:
+                servers = masterSlave(config.useReplicatedServers().addNodeAddress(addresses).setDatabase(database), properties);
+                break;
+            default:
+                servers = config.useSingleServer()
+                        .setAddress(addresses[0])
+                        .setDatabase(database)
+                        .setConnectionPoolSize(properties.getConnectionPoolSize())
+                        .setConnectionMinimumIdleSize(properties.getConnectionMinimumIdleSize())
+                        .setSubscriptionConnectionPoolSize(properties.getSubscriptionConnectionPoolSize());
+                break;
+        }
+        common(servers, properties, username, password);
+        return config;
+    }
+
+    private static MdxRedissonProperties.Mode mode(MdxRedissonProperties properties, RedisProperties fallback) {
+        if (properties.getMode() != null) {
+            return properties.getMode();
+        }
+        if (fallback != null && fallback.getCluster() != null && !fallback.getCluster().getNodes().isEmpty()) {
+            return MdxRedissonProperties.Mode.CLUSTER;
+        }
+        if (fallback != null && fallback.getSentinel() != null && !fallback.getSentinel().getNodes().isEmpty()) {
+            return MdxRedissonProperties.Mode.SENTINEL;
+        }
+        return MdxRedissonProperties.Mode.SINGLE;
+    }
+
+    private static String[] addresses(MdxRedissonProperties properties, RedisProperties fallback, MdxRedissonProperties.Mode mode) {
+        boolean ssl = fallback != null && fallback.isSsl();
+        List<String> nodes = new ArrayList<>(properties.getAddresses());
+        if (nodes.isEmpty() && fallback != null) {
+            if (mode == MdxRedissonProperties.Mode.CLUSTER && fallback.getCluster() != null) {
+                nodes.addAll(fallback.getCluster().getNodes());
+            } else if (mode == MdxRedissonProperties.Mode.SENTINEL && fallback.getSentinel() != null) {
+                nodes.addAll(fallback.getSentinel().getNodes());
+            } else if (StringUtils.hasText(fallback.getUrl())) {
+                nodes.add(fallback.getUrl());
+            } else {
+                nodes.add(fallback.getHost() + ":" + fallback.getPort());
+            }
+        }
+        if (nodes.isEmpty()) {
+            nodes.add(DEFAULT_ADDRESS);
+        }
+        String[] addresses = new String[nodes.size()];
+        for (int i = 0; i < addresses.length; i++) {
+            String node = nodes.get(i).trim();
+            addresses[i] = node.contains("://") ? node : (ssl ? "rediss://" : "redis://") + node;
+        }
+        return addresses;
+    }
+
+    private static BaseConfig<?> masterSlave(BaseMasterSlaveServersConfig<?> servers, MdxRedissonProperties properties) {
+        servers.setReadMode(properties.getReadMode());
+        servers.setMasterConnectionPoolSize(properties.getConnectionPoolSize());
+        servers.setMasterConnectionMinimumIdleSize(properties.getConnectionMinimumIdleSize());
+        servers.setSlaveConnectionPoolSize(properties.getConnectionPoolSize());
+        servers.setSlaveConnectionMinimumIdleSize(properties.getConnectionMinimumIdleSize());
+        servers.setSubscriptionConnectionPoolSize(properties.getSubscriptionConnectionPoolSize());
+        return servers;
+    }
+
+    private static void common(BaseConfig<?> servers, MdxRedissonProperties properties, String username, String password) {
+        if (StringUtils.hasText(username)) {
+            servers.setUsername(username);
+        }
+        if (StringUtils.hasText(password)) {
+            servers.setPassword(password);
+        }
+        servers.setTimeout(properties.getTimeout());
+        servers.setConnectTimeout(properties.getConnectTimeout());
+        servers.setRetryAttempts(properties.getRetryAttempts());
+        servers.setRetryInterval(properties.getRetryInterval());
+        servers.setIdleConnectionTimeout(properties.getIdleConnectionTimeout());
+        servers.setPingConnectionInterval(properties.getPingConnectionInterval());
+    }
+
+    private static Codec codec(String className) {
+        try {
+            Class<?> type = ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+            return (Codec) BeanUtils.instantiateClass(type);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("redisson编解码器不存在：" + className, e);
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.mdx.common.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mdx.common.base.BaseMqMessage;
 import org.apache.rocketmq.spring.support.RocketMQMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
@@ -20,7 +22,7 @@ import java.util.List;
 public class RocketMQEnhanceConfig {
 
     /**
-     * 解决RocketMQ Jackson不支持Java时间类型配置
+     * 解决RocketMQ Jackson不支持Java时间类型配置，反序列化 BaseMqMessage 时不生成key
      */
     @Bean
     @Primary
@@ -28,14 +30,29 @@ public class RocketMQEnhanceConfig {
         RocketMQMessageConverter converter = new RocketMQMessageConverter();
         CompositeMessageConverter compositeMessageConverter = (CompositeMessageConverter) converter.getMessageConverter();
         List<MessageConverter> messageConverterList = compositeMessageConverter.getConverters();
-        for (MessageConverter messageConverter : messageConverterList) {
+        for (int i = 0; i < messageConverterList.size(); i++) {
+            MessageConverter messageConverter = messageConverterList.get(i);
             if(messageConverter instanceof MappingJackson2MessageConverter){
 
                 MappingJackson2MessageConverter jackson2MessageConverter = (MappingJackson2MessageConverter) messageConverter;
                 ObjectMapper objectMapper = jackson2MessageConverter.getObjectMapper();
                 objectMapper.registerModules(new JavaTimeModule());
+                MqMessageJacksonConverter mqMessageConverter = new MqMessageJacksonConverter();
+                mqMessageConverter.setObjectMapper(objectMapper);
+                messageConverterList.set(i, mqMessageConverter);
             }
         }
         return converter;
     }
+
+    /**
+     * 消费端反序列化，消息中已携带key，构建时不再生成
+     */
+    private static class MqMessageJacksonConverter extends MappingJackson2MessageConverter {
+
+        @Override
+        protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+            return BaseMqMessage.withoutKeyGeneration(() -> super.convertFromInternal(message, targetClass, conversionHint));
+        }
+    }
 }
\ No newline at end of file
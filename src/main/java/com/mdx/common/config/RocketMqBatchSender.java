@@ -0,0 +1,204 @@
+package com.mdx.common.config;
+
+import com.mdx.common.metrics.MqProducerMetrics;
+import org.apache.rocketmq.client.producer.SendCallback;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.apache.rocketmq.spring.support.RocketMQUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按目的地聚合消息，凑满条数、字节数或等待超过linger时间后以rocketmq批量消息发送
+ * <p>
+ * 同一批消息topic相同，不支持延迟消息；每条消息的发送结果通过各自的future返回，
+ * 批量发送失败时该批所有future均以异常完成
+ */
+class RocketMqBatchSender {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RocketMqBatchSender.class);
+
+    /**
+     * 每条消息在批量编码中的固定开销，与broker计算批量大小的方式一致
+     */
+    private static final int MESSAGE_OVERHEAD = 20;
+
+    private final RocketMQTemplate template;
+
+    private final MdxRocketMqProperties.Batch properties;
+
+    private final MqProducerMetrics metrics;
+
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mdx-mq-batch-linger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    RocketMqBatchSender(RocketMQTemplate template, MdxRocketMqProperties.Batch properties, MqProducerMetrics metrics) {
+        this.template = template;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 加入待发送批次
+     *
+     * @param destination 目的地 topic:tag
+     * @param message     消息
+     * @return 发送结果
+     */
+    CompletableFuture<SendResult> add(String destination, org.springframework.messaging.Message<?> message) {
+        org.apache.rocketmq.common.message.Message rocketMsg = RocketMQUtil.convertToRocketMessage(
+                template.getMessageConverter(), template.getCharset(), destination, message);
+        Pending pending = new Pending(rocketMsg, sizeOf(rocketMsg));
+        batches.computeIfAbsent(destination, Batch::new).add(pending);
+        return pending.future;
+    }
+
+    /**
+     * 立即发送所有未满的批次
+     */
+    void flush() {
+        for (Batch batch : batches.values()) {
+            List<Pending> drained = batch.drain();
+            if (drained != null) {
+                send(batch.destination, drained);
+            }
+        }
+    }
+
+    /**
+     * 发送剩余消息并停止定时线程
+     */
+    void close() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    private void send(String destination, List<Pending> pendings) {
+        List<org.apache.rocketmq.common.message.Message> messages = new ArrayList<>(pendings.size());
+        for (Pending pending : pendings) {
+            messages.add(pending.message);
+        }
+        long start = System.nanoTime();
+        try {
+            template.getProducer().send(messages, new SendCallback() {
+                @Override
+                public void onSuccess(SendResult sendResult) {
+                    metrics.sent("batch", destination, start, sendResult);
+                    for (Pending pending : pendings) {
+                        pending.future.complete(sendResult);
+                    }
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    metrics.failed("batch", destination, start);
+                    LOGGER.error("[{}]批量消息发送失败，条数：{}", destination, pendings.size(), e);
+                    for (Pending pending : pendings) {
+                        pending.future.completeExceptionally(e);
+                    }
+                }
+            }, template.getProducer().getSendMsgTimeout());
+        } catch (Exception e) {
+            metrics.failed("batch", destination, start);
+            LOGGER.error("[{}]批量消息发送失败，条数：{}", destination, pendings.size(), e);
+            for (Pending pending : pendings) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static int sizeOf(org.apache.rocketmq.common.message.Message message) {
+        int size = MESSAGE_OVERHEAD + message.getTopic().length() + message.getBody().length;
+        Map<String, String> props = message.getProperties();
+        if (props != null) {
+            for (Map.Entry<String, String> entry : props.entrySet()) {
+                size += entry.getKey().getBytes(StandardCharsets.UTF_8).length
+                        + entry.getValue().getBytes(StandardCharsets.UTF_8).length + 2;
+            }
+        }
+        return size;
+    }
+
+    private static final class Pending {
+        private final org.apache.rocketmq.common.message.Message message;
+        private final int size;
+        private final CompletableFuture<SendResult> future = new CompletableFuture<>();
+
+        private Pending(org.apache.rocketmq.common.message.Message message, int size) {
+            this.message = message;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 单个目的地的待发送批次
+     */
+    private final class Batch {
+        private final String destination;
+        private List<Pending> pendings = new ArrayList<>();
+        private int bytes;
+
+        private Batch(String destination) {
+            this.destination = destination;
+        }
+
+        /**
+         * 加入消息，凑满的批次在锁外发送
+         */
+        private void add(Pending pending) {
+            List<Pending> previous = null;
+            List<Pending> current = null;
+            synchronized (this) {
+                if (!pendings.isEmpty() && bytes + pending.size > properties.getMaxBytes()) {
+                    previous = take();
+                }
+                pendings.add(pending);
+                bytes += pending.size;
+                if (pendings.size() >= properties.getMaxCount() || bytes >= properties.getMaxBytes()
+                        || scheduler.isShutdown()) {
+                    current = take();
+                } else if (pendings.size() == 1) {
+                    scheduler.schedule(this::lingerFlush, properties.getLingerMillis(), TimeUnit.MILLISECONDS);
+                }
+            }
+            if (previous != null) {
+                send(destination, previous);
+            }
+            if (current != null) {
+                send(destination, current);
+            }
+        }
+
+        private void lingerFlush() {
+            List<Pending> drained = drain();
+            if (drained != null) {
+                send(destination, drained);
+            }
+        }
+
+        private synchronized List<Pending> drain() {
+            return pendings.isEmpty() ? null : take();
+        }
+
+        private List<Pending> take() {
+            List<Pending> taken = pendings;
+            pendings = new ArrayList<>();
+            bytes = 0;
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.mdx.common.config;
+
+import com.alibaba.fastjson.JSONObject;
+import com.mdx.common.metrics.MqProducerMetrics;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 消息发送日志
+ * <p>
+ * 日志级别未开启时不做任何处理；消息内容按比例采样、超长截断。
+ * 采中的消息内容在发送线程中序列化，记录的是发送时的内容；
+ * 异步模式下发送线程只把记录放入有界队列，写日志由后台线程完成，队列满时丢弃并记录指标
+ */
+class RocketMqSendAudit {
+
+    private final Logger logger;
+
+    private final MdxRocketMqProperties.Audit properties;
+
+    private final MqProducerMetrics metrics;
+
+    private final BlockingQueue<Record> queue;
+
+    private final Thread writer;
+
+    RocketMqSendAudit(Logger logger, MdxRocketMqProperties.Audit properties, MqProducerMetrics metrics) {
+        this.logger = logger;
+        this.properties = properties;
+        this.metrics = metrics;
+        if (properties.isAsync()) {
+            this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            this.writer = new Thread(this::drain, "mdx-mq-send-audit");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            this.queue = null;
+            this.writer = null;
+        }
+    }
+
+    /**
+     * 记录发送结果
+     *
+     * @param info        是否info级别，否则为debug级别
+     * @param kind        消息类型
+     * @param destination 目的地
+     * @param extra       附加信息，如hashKey、延迟等级，可为null
+     * @param key         消息key
+     * @param message     消息
+     * @param result      发送结果
+     */
+    void sent(boolean info, String kind, String destination, Object extra, String key, Object message, SendResult result) {
+        if (info ? !logger.isInfoEnabled() : !logger.isDebugEnabled()) {
+            return;
+        }
+        String payload = sampled() ? truncate(JSONObject.toJSONString(message)) : null;
+        Record record = new Record(info, kind, destination, extra, key, payload, result);
+        if (queue == null) {
+            write(record);
+        } else if (!queue.offer(record)) {
+            metrics.auditDropped();
+        }
+    }
+
+    /**
+     * 停止后台线程，队列中剩余的日志写完后退出
+     */
+    void close() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    private boolean sampled() {
+        double rate = properties.getPayloadSampleRate();
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private void drain() {
+        while (true) {
+            try {
+                write(queue.take());
+            } catch (InterruptedException e) {
+                List<Record> remaining = new ArrayList<>(queue.size());
+                queue.drainTo(remaining);
+                for (Record record : remaining) {
+                    write(record);
+                }
+                return;
+            } catch (Exception e) {
+                logger.warn("消息发送日志写入失败", e);
+            }
+        }
+    }
+
+    private void write(Record record) {
+        SendResult result = record.result;
+        String msgId = result == null ? null : result.getMsgId();
+        Object status = result == null ? null : result.getSendStatus();
+        String payload = record.payload == null ? "-" : record.payload;
+        String format = record.extra == null
+                ? "[{}]{}消息发送 key={} msgId={} status={} payload={}"
+                : "[{}]{}消息发送 key={} msgId={} status={} extra={} payload={}";
+        Object[] args = record.extra == null
+                ? new Object[]{record.destination, record.kind, record.key, msgId, status, payload}
+                : new Object[]{record.destination, record.kind, record.key, msgId, status, record.extra, payload};
+        if (record.info) {
+            logger.info(format, args);
+        } else {
+            logger.debug(format, args);
+        }
+    }
+
+    private String truncate(String payload) {
+        int max = properties.getMaxPayloadLength();
+        if (max <= 0 || payload.length() <= max) {
+            return payload;
+        }
+        return payload.substring(0, max) + "...(" + (payload.length() - max) + " more)";
+    }
+
+    private static final class Record {
+        private final boolean info;
+        private final String kind;
+        private final String destination;
+        private final Object extra;
+        private final String key;
+        private final String payload;
+        private final SendResult result;
+
+        private Record(boolean info, String kind, String destination, Object extra, String key, String payload, SendResult result) {
+            this.info = info;
+            this.kind = kind;
+            this.destination = destination;
+            this.extra = extra;
+            this.key = key;
+            this.payload = payload;
+            this.result = result;
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package com.mdx.common.config;
 
-import com.alibaba.fastjson.JSONObject;
 import com.mdx.common.base.BaseMqMessage;
 import com.mdx.common.constant.RocketMqSysConstant;
+import com.mdx.common.metrics.MqProducerMetrics;
 import com.mdx.common.util.StringUtils;
+import org.apache.rocketmq.client.producer.SendCallback;
 import org.apache.rocketmq.client.producer.SendResult;
 import org.apache.rocketmq.client.producer.TransactionListener;
 import org.apache.rocketmq.client.producer.TransactionSendResult;
@@ -11,21 +12,37 @@ import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.apache.rocketmq.spring.support.RocketMQHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
-public class RocketMqTemplate {
+public class RocketMqTemplate implements DisposableBean {
     private static final Logger LOGGER = LoggerFactory.getLogger(RocketMqTemplate.class);
     private static final AtomicInteger sequenceNumberGenerator = new AtomicInteger(0);
 
     @Resource(name = "rocketMQTemplate")
     private RocketMQTemplate template;
 
+    @Autowired
+    private MdxRocketMqProperties rocketMqProperties;
+
+    private volatile RocketMqBatchSender batchSender;
+
+    private volatile RocketMqSendAudit audit;
+
+    /**
+     * 发送指标，未引入Micrometer时不记录
+     */
+    @Autowired(required = false)
+    private MqProducerMetrics producerMetrics = MqProducerMetrics.NOOP;
+
     /**
      * 获取模板，如果封装的方法不够提供原生的使用方式
      */
@@ -47,12 +64,16 @@ public class RocketMqTemplate {
      * 发送顺序消息
      */
     public <T extends BaseMqMessage> SendResult sendOrderly(String topic, String tag, T message, String hashKey) {
+        String destination = buildDestination(topic, tag);
+        long start = System.nanoTime();
         try {
-            Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.getKey()).build();
-            SendResult result = template.syncSendOrderly(buildDestination(topic,tag), sendMessage, hashKey);
-            LOGGER.info("[{}]顺序消息发送成功，hashKey：{}，内容：{}", buildDestination(topic,tag), hashKey, JSONObject.toJSONString(result));
+            Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.ensureKey()).build();
+            SendResult result = template.syncSendOrderly(destination, sendMessage, hashKey);
+            producerMetrics.sent("orderly", destination, start, result);
+            audit().sent(true, "顺序", destination, hashKey, message.getKey(), message, result);
             return result;
         } catch (Exception e) {
+            producerMetrics.failed("orderly", destination, start);
             e.printStackTrace();
         }
         return null;
@@ -67,10 +88,17 @@ public class RocketMqTemplate {
     }
 
     public <T extends BaseMqMessage> SendResult send(String destination, T message) {
-        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.getKey()).build();
-        SendResult sendResult = template.syncSend(destination, sendMessage);
-        // 此处为了方便查看给日志转了json，根据选择选择日志记录方式，例如ELK采集
-        LOGGER.debug("[{}]同步消息[{}]发送结果[{}]", destination, JSONObject.toJSONString(message), JSONObject.toJSON(sendResult));
+        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.ensureKey()).build();
+        long start = System.nanoTime();
+        SendResult sendResult;
+        try {
+            sendResult = template.syncSend(destination, sendMessage);
+        } catch (RuntimeException e) {
+            producerMetrics.failed("sync", destination, start);
+            throw e;
+        }
+        producerMetrics.sent("sync", destination, start, sendResult);
+        audit().sent(false, "同步", destination, null, message.getKey(), message, sendResult);
         return sendResult;
     }
 
@@ -86,12 +114,146 @@ public class RocketMqTemplate {
     }
 
     public <T extends BaseMqMessage> SendResult send(String destination, T message, int delayLevel) {
-        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.getKey()).build();
-        SendResult sendResult = template.syncSend(destination, sendMessage, 3000, delayLevel);
-        LOGGER.debug("[{}]延迟等级[{}]消息[{}]发送结果[{}]", destination, delayLevel, JSONObject.toJSONString(message), JSONObject.toJSONString(sendResult));
+        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.ensureKey()).build();
+        long start = System.nanoTime();
+        SendResult sendResult;
+        try {
+            sendResult = template.syncSend(destination, sendMessage, 3000, delayLevel);
+        } catch (RuntimeException e) {
+            producerMetrics.failed("delay", destination, start);
+            throw e;
+        }
+        producerMetrics.sent("delay", destination, start, sendResult);
+        audit().sent(false, "延迟", destination, delayLevel, message.getKey(), message, sendResult);
         return sendResult;
     }
 
+    /**
+     * 发送异步消息，不阻塞当前线程，结果通过future返回
+     */
+    public <T extends BaseMqMessage> CompletableFuture<SendResult> sendAsync(String topic, String tag, T message) {
+        return sendAsync(buildDestination(topic, tag), message);
+    }
+
+    public <T extends BaseMqMessage> CompletableFuture<SendResult> sendAsync(String destination, T message) {
+        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.ensureKey()).build();
+        SendFuture future = new SendFuture(producerMetrics, "async", destination);
+        try {
+            template.asyncSend(destination, sendMessage, future);
+        } catch (Exception e) {
+            future.onException(e);
+        }
+        return future;
+    }
+
+    /**
+     * 发送异步延迟消息
+     *
+     * @param delayLevel 延迟等级，同 {@link #send(String, String, BaseMqMessage, int)}
+     */
+    public <T extends BaseMqMessage> CompletableFuture<SendResult> sendAsync(String topic, String tag, T message, int delayLevel) {
+        return sendAsync(buildDestination(topic, tag), message, delayLevel);
+    }
+
+    public <T extends BaseMqMessage> CompletableFuture<SendResult> sendAsync(String destination, T message, int delayLevel) {
+        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.ensureKey()).build();
+        SendFuture future = new SendFuture(producerMetrics, "asyncDelay", destination);
+        try {
+            template.asyncSend(destination, sendMessage, future, 3000, delayLevel);
+        } catch (Exception e) {
+            future.onException(e);
+        }
+        return future;
+    }
+
+    /**
+     * 发送异步顺序消息
+     */
+    public <T extends BaseMqMessage> CompletableFuture<SendResult> sendOrderlyAsync(String topic, String tag, T message, String hashKey) {
+        String destination = buildDestination(topic, tag);
+        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.ensureKey()).build();
+        SendFuture future = new SendFuture(producerMetrics, "asyncOrderly", destination);
+        try {
+            template.asyncSendOrderly(destination, sendMessage, hashKey, future);
+        } catch (Exception e) {
+            future.onException(e);
+        }
+        return future;
+    }
+
+    /**
+     * 批量发送，同一目的地的消息按 mdx.rocketmq.batch 配置聚合后一次发送，适合高频且允许毫秒级延迟的消息。
+     * 不保证顺序，不支持延迟消息
+     */
+    public <T extends BaseMqMessage> CompletableFuture<SendResult> sendBatched(String topic, String tag, T message) {
+        return sendBatched(buildDestination(topic, tag), message);
+    }
+
+    public <T extends BaseMqMessage> CompletableFuture<SendResult> sendBatched(String destination, T message) {
+        Message<T> sendMessage = MessageBuilder.withPayload(message).setHeader(RocketMQHeaders.KEYS, message.ensureKey()).build();
+        try {
+            return batchSender().add(destination, sendMessage);
+        } catch (Exception e) {
+            CompletableFuture<SendResult> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 立即发送所有聚合中的批量消息
+     */
+    public void flushBatched() {
+        RocketMqBatchSender sender = batchSender;
+        if (sender != null) {
+            sender.flush();
+        }
+    }
+
+    private RocketMqBatchSender batchSender() {
+        RocketMqBatchSender sender = batchSender;
+        if (sender == null) {
+            synchronized (this) {
+                sender = batchSender;
+                if (sender == null) {
+                    sender = new RocketMqBatchSender(template, rocketMqProperties.getBatch(), producerMetrics);
+                    batchSender = sender;
+                }
+            }
+        }
+        return sender;
+    }
+
+    /**
+     * 发送日志，首次使用时创建
+     */
+    private RocketMqSendAudit audit() {
+        RocketMqSendAudit sendAudit = audit;
+        if (sendAudit == null) {
+            synchronized (this) {
+                sendAudit = audit;
+                if (sendAudit == null) {
+                    MdxRocketMqProperties properties = rocketMqProperties != null ? rocketMqProperties : new MdxRocketMqProperties();
+                    sendAudit = new RocketMqSendAudit(LOGGER, properties.getAudit(), producerMetrics);
+                    audit = sendAudit;
+                }
+            }
+        }
+        return sendAudit;
+    }
+
+    @Override
+    public void destroy() {
+        RocketMqBatchSender sender = batchSender;
+        if (sender != null) {
+            sender.close();
+        }
+        RocketMqSendAudit sendAudit = audit;
+        if (sendAudit != null) {
+            sendAudit.close();
+        }
+    }
+
     /**
      * 发送事务消息
      *
@@ -104,11 +266,48 @@ public class RocketMqTemplate {
     public <T extends BaseMqMessage> TransactionSendResult sendInTransaction(
             String topic, String tag, T message, Object arg, TransactionListener listener) {
         Message<T> sendMessage = MessageBuilder.withPayload(message)
-                .setHeader(RocketMQHeaders.KEYS, message.getKey())
+                .setHeader(RocketMQHeaders.KEYS, message.ensureKey())
                 .build();
         String destination = buildDestination(topic, tag);
-        TransactionSendResult sendResult = template.sendMessageInTransaction(destination, sendMessage, arg);
-        LOGGER.debug("[{}]事务消息[{}]发送结果[{}]", destination, JSONObject.toJSONString(message), JSONObject.toJSON(sendResult));
+        long start = System.nanoTime();
+        TransactionSendResult sendResult;
+        try {
+            sendResult = template.sendMessageInTransaction(destination, sendMessage, arg);
+        } catch (RuntimeException e) {
+            producerMetrics.failed("transaction", destination, start);
+            throw e;
+        }
+        producerMetrics.sent("transaction", destination, start, sendResult);
+        audit().sent(false, "事务", destination, null, message.getKey(), message, sendResult);
         return sendResult;
     }
+
+    /**
+     * 异步发送回调，同时作为返回给调用方的future
+     */
+    private static final class SendFuture extends CompletableFuture<SendResult> implements SendCallback {
+        private final MqProducerMetrics metrics;
+        private final String operation;
+        private final String destination;
+        private final long start = System.nanoTime();
+
+        private SendFuture(MqProducerMetrics metrics, String operation, String destination) {
+            this.metrics = metrics;
+            this.operation = operation;
+            this.destination = destination;
+        }
+
+        @Override
+        public void onSuccess(SendResult sendResult) {
+            metrics.sent(operation, destination, start, sendResult);
+            complete(sendResult);
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            metrics.failed(operation, destination, start);
+            LOGGER.error("[{}]异步消息发送失败", destination, e);
+            completeExceptionally(e);
+        }
+    }
 }
\ No newline at end of file
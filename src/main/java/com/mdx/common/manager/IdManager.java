@@ -0,0 +1,236 @@
+package com.mdx.common.manager;
+
+import com.mdx.common.config.MdxRedisProperties;
+import com.mdx.common.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式编号生成
+ * <p>
+ * 雪花算法：41位毫秒时间戳 + 10位机器号 + 12位序号，单节点每毫秒4096个，全局唯一且按时间递增。
+ * 机器号通过redis租约分配，首次生成时抢占并定时续期，租约丢失时重新抢占；生成编号本身不访问redis。
+ * 关闭时租约不直接删除，而是记录最后编号时间后保留一个租约时间，下一个持有者从该时间之后开始编号，
+ * 滚动发布时即使编号时间领先系统时钟或节点间时钟不一致，同一机器号也不会重复编号。
+ * 时钟回拨或单毫秒序号用尽时沿用上一个时间戳继续递增，不会产生重复编号
+ */
+@Component
+public class IdManager implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(IdManager.class);
+
+    private static final int WORKER_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final int MAX_WORKER = 1 << WORKER_BITS;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 编号时间最多领先系统时钟的毫秒数，超出后等待时钟追上
+     */
+    private static final long MAX_DRIFT_MILLIS = 1000;
+
+    /**
+     * 编号的最大十进制位数
+     */
+    private static final int MAX_DIGITS = 19;
+
+    /**
+     * 当前节点标识，作为租约持有者
+     */
+    private final String nodeId = Util.getUUID();
+
+    /**
+     * 时间戳(相对起点) << SEQUENCE_BITS | 序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private MdxRedisProperties redisProperties;
+
+    private volatile int workerId = -1;
+
+    /**
+     * 租约有效截止时间，超过后必须重新确认租约才能继续生成
+     */
+    private volatile long leaseDeadline;
+
+    private ScheduledExecutorService renewer;
+
+    /**
+     * 生成编号
+     *
+     * @return 正数编号
+     */
+    public long nextId() {
+        int worker = workerId;
+        if (worker < 0 || System.currentTimeMillis() >= leaseDeadline) {
+            worker = ensureLease();
+        }
+        long epoch = redisProperties.getIdGenerator().getEpochMillis();
+        while (true) {
+            long current = state.get();
+            long now = System.currentTimeMillis() - epoch;
+            long next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+            if ((next >>> SEQUENCE_BITS) - now > MAX_DRIFT_MILLIS) {
+                Thread.yield();
+                continue;
+            }
+            if (state.compareAndSet(current, next)) {
+                return ((next >>> SEQUENCE_BITS) << (WORKER_BITS + SEQUENCE_BITS))
+                        | ((long) worker << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 生成业务单号：前缀 + 编号，编号左侧补0使总长度为length，length不足时不补位。
+     * 同一前缀和长度下单号按生成时间递增
+     *
+     * @param head   前缀
+     * @param length 总长度
+     * @return 单号
+     */
+    public String nextNo(String head, int length) {
+        long id = nextId();
+        int digits = MAX_DIGITS;
+        for (long bound = 1000000000000000000L; digits > 1 && id < bound; bound /= 10) {
+            digits--;
+        }
+        int width = Math.max(digits, length - head.length());
+        char[] buf = new char[head.length() + width];
+        head.getChars(0, head.length(), buf, 0);
+        for (int i = buf.length - 1; i >= head.length(); i--) {
+            buf[i] = (char) ('0' + id % 10);
+            id /= 10;
+        }
+        return new String(buf);
+    }
+
+    /**
+     * 当前机器号，未分配时为-1
+     */
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    private synchronized int ensureLease() {
+        if (workerId >= 0 && System.currentTimeMillis() < leaseDeadline) {
+            return workerId;
+        }
+        if (workerId >= 0 && renew()) {
+            return workerId;
+        }
+        int start = ThreadLocalRandom.current().nextInt(MAX_WORKER);
+        for (int i = 0; i < MAX_WORKER; i++) {
+            int candidate = (start + i) % MAX_WORKER;
+            long requestTime = System.currentTimeMillis();
+            long lastMillis = executeLease(RedisLuaScripts.LEASE_ACQUIRE, candidate);
+            if (lastMillis >= 0) {
+                advanceTo(lastMillis);
+                workerId = candidate;
+                leaseDeadline = requestTime + TimeUnit.SECONDS.toMillis(leaseSeconds());
+                startRenewer();
+                log.info("编号生成机器号租约获取成功，机器号：{}", candidate);
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("编号生成机器号已全部占用");
+    }
+
+    /**
+     * 编号时间推进到上一个持有者最后编号时间之后
+     *
+     * @param lastMillis 上一个持有者的最后编号时间(毫秒)，0表示没有记录
+     */
+    private void advanceTo(long lastMillis) {
+        if (lastMillis <= 0) {
+            return;
+        }
+        long seed = (lastMillis - redisProperties.getIdGenerator().getEpochMillis() + 1) << SEQUENCE_BITS;
+        state.accumulateAndGet(seed, Math::max);
+    }
+
+    private boolean renew() {
+        long requestTime = System.currentTimeMillis();
+        if (executeLease(RedisLuaScripts.LEASE_RENEW, workerId) == 1) {
+            leaseDeadline = requestTime + TimeUnit.SECONDS.toMillis(leaseSeconds());
+            return true;
+        }
+        log.warn("编号生成机器号[{}]租约已丢失，重新获取", workerId);
+        workerId = -1;
+        return false;
+    }
+
+    private void startRenewer() {
+        if (renewer != null) {
+            return;
+        }
+        renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mdx-id-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, TimeUnit.SECONDS.toMillis(leaseSeconds()) / 3);
+        renewer.scheduleWithFixedDelay(() -> {
+            try {
+                synchronized (this) {
+                    if (workerId >= 0 && !renew()) {
+                        ensureLease();
+                    }
+                }
+            } catch (Exception e) {
+                log.error("编号生成机器号租约续期失败", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private long executeLease(RedisScript<Long> script, int worker, String... extraArgs) {
+        Object[] args = new Object[2 + extraArgs.length];
+        args[0] = String.valueOf(leaseSeconds());
+        args[1] = nodeId;
+        System.arraycopy(extraArgs, 0, args, 2, extraArgs.length);
+        Long result = redisTemplate.execute(script, RedisSerializer.string(), null,
+                Collections.singletonList(redisProperties.getIdGenerator().getWorkerKeyPrefix() + worker), args);
+        return result == null ? 0 : result;
+    }
+
+    private long leaseSeconds() {
+        return redisProperties.getIdGenerator().getLeaseSeconds();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+        if (workerId >= 0) {
+            int worker = workerId;
+            workerId = -1;
+            long lastMillis = (state.get() >>> SEQUENCE_BITS) + redisProperties.getIdGenerator().getEpochMillis();
+            try {
+                executeLease(RedisLuaScripts.LEASE_RELEASE, worker, String.valueOf(lastMillis));
+            } catch (Exception e) {
+                log.warn("编号生成机器号[{}]租约释放失败", worker, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mdx.common.manager;
+
+import com.mdx.common.config.MdxRocketMqProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mq 幂等消费记录
+ * <p>
+ * 以 消费者名称 + 消息key 为维度，通过 SET NX EX 写入消费中记录抢占消费权，有效期为 processingTtlSeconds；
+ * 消费成功后覆盖为已消费记录并延长到 ttlSeconds，消费失败时删除记录以便重试
+ */
+public class MqIdempotentStore {
+
+    /**
+     * 抢占结果
+     */
+    public enum Claim {
+        /**
+         * 已在redis中抢占成功
+         */
+        ACQUIRED,
+
+        /**
+         * 消息没有key，不做去重
+         */
+        UNCHECKED,
+
+        /**
+         * 重复消息，应丢弃
+         */
+        DUPLICATE
+    }
+
+    private static final Integer PROCESSING = 0;
+
+    private static final Integer DONE = 1;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final MdxRocketMqProperties.Idempotent properties;
+
+    private final Duration processingTtl;
+
+    public MqIdempotentStore(RedisTemplate<String, Object> redisTemplate, MdxRocketMqProperties.Idempotent properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.processingTtl = Duration.ofSeconds(properties.getProcessingTtlSeconds());
+    }
+
+    /**
+     * 抢占消费权
+     *
+     * @param consumer 消费者名称
+     * @param key      消息key
+     * @return 抢占结果
+     */
+    public Claim claim(String consumer, String key) {
+        if (key == null) {
+            return Claim.UNCHECKED;
+        }
+        Boolean absent = redisTemplate.opsForValue().setIfAbsent(redisKey(consumer, key), PROCESSING, processingTtl);
+        return Boolean.TRUE.equals(absent) ? Claim.ACQUIRED : Claim.DUPLICATE;
+    }
+
+    /**
+     * 消费成功，消费中记录覆盖为已消费记录
+     */
+    public void complete(String consumer, String key, Claim claim) {
+        if (claim != Claim.ACQUIRED) {
+            return;
+        }
+        redisTemplate.opsForValue().set(redisKey(consumer, key), DONE, properties.getTtlSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 消费失败，释放抢占的记录，重试时可以再次消费
+     */
+    public void release(String consumer, String key, Claim claim) {
+        if (claim == Claim.ACQUIRED) {
+            redisTemplate.delete(redisKey(consumer, key));
+        }
+    }
+
+    private String redisKey(String consumer, String key) {
+        return properties.getKeyPrefix() + consumer + ":" + key;
+    }
+}
@@ -0,0 +1,720 @@
+package com.mdx.common.manager;
+
+import com.mdx.common.config.MdxRedisProperties;
+import com.mdx.common.config.RedisChunkManifest;
+import com.mdx.common.metrics.RedisMetrics;
+import com.mdx.common.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.util.ByteUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * redis 非阻塞工具类，方法与 {@link RedisManager} 一一对应，返回 Mono，不阻塞调用线程
+ * <p>
+ * 与 RedisManager 使用同一个value序列化，两边写入的数据可以互相读取；
+ * RedisManager 中出错返回false/0/null的方法，这里对应返回false/0/空。
+ * 写入后同样通知近端缓存失效，但读取不经过本地近端缓存。
+ * 读到分片清单时再读取分片拼接；开启分片时写入、删除、设置过期时间与 RedisManager 一样经过分片脚本
+ */
+public class ReactiveRedisManager {
+    private static final Logger log = LoggerFactory.getLogger(ReactiveRedisManager.class);
+
+    private static final RedisElementWriter<byte[]> RAW_WRITER = RedisElementWriter.from(RedisSerializer.byteArray());
+
+    private static final RedisElementReader<Long> LONG_READER = RedisElementReader.from(new GenericToStringSerializer<>(Long.class));
+
+    private static final RedisElementReader<byte[]> RAW_READER = RedisElementReader.from(RedisSerializer.byteArray());
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ReactiveRedisTemplate<String, Object> template;
+
+    private final RedisSerializer<Object> valueSerializer;
+
+    private final MdxRedisProperties.Chunk chunk;
+
+    /**
+     * 本地近端缓存，未开启时为null
+     */
+    @Autowired(required = false)
+    private RedisNearCache nearCache;
+
+    /**
+     * 从节点读取路由，未开启时为null
+     */
+    @Autowired(required = false)
+    private RedisReadRouter readRouter;
+
+    /**
+     * 操作指标，未引入Micrometer时不记录
+     */
+    @Autowired(required = false)
+    private RedisMetrics metrics = RedisMetrics.NOOP;
+
+    /**
+     * @param template        非阻塞 RedisTemplate，key为String序列化
+     * @param valueSerializer value序列化，用于脚本参数，需与template一致
+     */
+    public ReactiveRedisManager(ReactiveRedisTemplate<String, Object> template, RedisSerializer<Object> valueSerializer) {
+        this(template, valueSerializer, new MdxRedisProperties.Chunk());
+    }
+
+    /**
+     * @param template        非阻塞 RedisTemplate，key为String序列化
+     * @param valueSerializer value序列化，用于脚本参数，需与template一致
+     * @param chunk           大value分片配置，需与 RedisManager 一致
+     */
+    public ReactiveRedisManager(ReactiveRedisTemplate<String, Object> template, RedisSerializer<Object> valueSerializer,
+                                MdxRedisProperties.Chunk chunk) {
+        this.template = template;
+        this.valueSerializer = valueSerializer;
+        this.chunk = chunk;
+    }
+
+    public ReactiveRedisTemplate<String, Object> getTemplate() {
+        return template;
+    }
+
+    // =============================common============================
+
+    /**
+     * 指定缓存失效时间
+     *
+     * @param key  键
+     * @param time 时间(秒)
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> expire(String key, long time) {
+        if (time <= 0) {
+            return Mono.just(true);
+        }
+        if (chunk.isEnabled()) {
+            return orElse("expire", key, written(key, evalChunkScript(RedisLuaScripts.EXPIRE_AND_GET_MANIFEST, key, time, null)
+                    .flatMap(reply -> expireChunks(key, RedisChunks.manifestOf(reply), RedisChunks.chunkTime(time, chunk))
+                            .thenReturn(true))), false);
+        }
+        return orElse("expire", key, written(key, template.expire(key, Duration.ofSeconds(time)).thenReturn(true)), false);
+    }
+
+    /**
+     * 根据key 获取过期时间
+     *
+     * @param key 键 不能为null
+     * @return 时间(秒) 返回0代表为永久有效
+     */
+    public Mono<Long> getExpire(String key) {
+        return timed("getExpire", key, template.getExpire(key).map(Duration::getSeconds));
+    }
+
+    /**
+     * 判断key是否存在
+     *
+     * @param key 键
+     * @return true 存在 false不存在
+     */
+    public Mono<Boolean> hasKey(String key) {
+        return orElse("hasKey", key, template.hasKey(key), false);
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 可以传一个值 或多个
+     * @return 删除的个数
+     */
+    public Mono<Long> del(String... key) {
+        if (key == null || key.length == 0) {
+            return Mono.just(0L);
+        }
+        if (chunk.isEnabled()) {
+            return timed("del", null, Flux.fromArray(key)
+                    .flatMap(k -> evalChunkScript(RedisLuaScripts.DEL_AND_GET_MANIFEST, k, 0, null)
+                            .flatMap(reply -> expireChunks(k, RedisChunks.manifestOf(reply), chunk.getGraceSeconds())
+                                    .thenReturn(RedisChunks.countOf(reply))))
+                    .reduce(0L, Long::sum)
+                    .flatMap(count -> afterWrite(Arrays.asList(key)).thenReturn(count)));
+        }
+        return timed("del", null, template.delete(key).flatMap(count -> afterWrite(Arrays.asList(key)).thenReturn(count)));
+    }
+
+    // ============================String=============================
+
+    /**
+     * 普通缓存获取
+     *
+     * @param key 键
+     * @return 值
+     */
+    public Mono<Object> get(String key) {
+        if (key == null) {
+            return Mono.empty();
+        }
+        ByteBuffer rawKey = template.getSerializationContext().getKeySerializationPair().write(key);
+        return timed("get", key, template.execute(connection -> connection.stringCommands().get(rawKey))
+                .next()
+                .flatMap(raw -> readValue(key, ByteUtils.getBytes(raw))));
+    }
+
+    /**
+     * 普通缓存放入
+     *
+     * @param key   键
+     * @param value 值
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> set(String key, Object value) {
+        if (chunk.isEnabled()) {
+            return orElse("set", key, writeValue(key, value, -1), false);
+        }
+        return orElse("set", key, written(key, template.opsForValue().set(key, value)), false);
+    }
+
+    /**
+     * 普通缓存放入并设置时间
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒) time要大于0 如果time小于等于0 将设置无限期
+     * @return true成功 false 失败
+     */
+    public Mono<Boolean> set(String key, Object value, long time) {
+        if (chunk.isEnabled()) {
+            return orElse("set", key, writeValue(key, value, time), false);
+        }
+        Mono<Boolean> set = time > 0
+                ? template.opsForValue().set(key, value, Duration.ofSeconds(time))
+                : template.opsForValue().set(key, value);
+        return orElse("set", key, written(key, set), false);
+    }
+
+    /**
+     * 递增
+     *
+     * @param key   键
+     * @param delta 要增加几(大于0)
+     * @return 递增后的值
+     */
+    public Mono<Long> incr(String key, long delta) {
+        if (delta < 0) {
+            return Mono.error(new RuntimeException("递增因子必须大于0"));
+        }
+        return timed("incr", key, written(key, template.opsForValue().increment(key, delta)));
+    }
+
+    /**
+     * 递减
+     *
+     * @param key   键
+     * @param delta 要减少几(大于0)
+     * @return 递减后的值
+     */
+    public Mono<Long> decr(String key, long delta) {
+        if (delta < 0) {
+            return Mono.error(new RuntimeException("递减因子必须大于0"));
+        }
+        return timed("decr", key, written(key, template.opsForValue().increment(key, -delta)));
+    }
+
+    // ================================Map=================================
+
+    /**
+     * HashGet
+     *
+     * @param key  键 不能为null
+     * @param item 项 不能为null
+     * @return 值
+     */
+    public Mono<Object> hget(String key, String item) {
+        return timed("hget", key, template.opsForHash().get(key, item));
+    }
+
+    /**
+     * 获取hashKey对应的所有键值
+     *
+     * @param key 键
+     * @return 对应的多个键值
+     */
+    public Mono<Map<Object, Object>> hmget(String key) {
+        return timed("hmget", key, template.opsForHash().entries(key)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new));
+    }
+
+    /**
+     * HashSet
+     *
+     * @param key 键
+     * @param map 对应多个键值
+     * @return true 成功 false 失败
+     */
+    public Mono<Boolean> hmset(String key, Map<String, Object> map) {
+        return orElse("hmset", key, written(key, template.opsForHash().putAll(key, map)), false);
+    }
+
+    /**
+     * HashSet 并设置时间，写入和过期在一次往返内原子完成
+     *
+     * @param key  键
+     * @param map  对应多个键值
+     * @param time 时间(秒)
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> hmset(String key, Map<String, Object> map, long time) {
+        return orElse("hmset", key, Mono.defer(() -> {
+            List<byte[]> args = new ArrayList<>(map.size() * 2 + 1);
+            args.add(null);
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                args.add(rawHashKey(entry.getKey()));
+                args.add(valueSerializer.serialize(entry.getValue()));
+            }
+            return executeAndExpire(RedisLuaScripts.HMSET_AND_EXPIRE, key, time, args).thenReturn(true);
+        }), false);
+    }
+
+    /**
+     * 向一张hash表中放入数据,如果不存在将创建
+     *
+     * @param key   键
+     * @param item  项
+     * @param value 值
+     * @return true 成功 false失败
+     */
+    public Mono<Boolean> hset(String key, String item, Object value) {
+        return orElse("hset", key, written(key, template.opsForHash().put(key, item, value)).thenReturn(true), false);
+    }
+
+    /**
+     * 向一张hash表中放入数据,如果不存在将创建，写入和过期在一次往返内原子完成
+     *
+     * @param key   键
+     * @param item  项
+     * @param value 值
+     * @param time  时间(秒) 注意:如果已存在的hash表有时间,这里将会替换原有的时间
+     * @return true 成功 false失败
+     */
+    public Mono<Boolean> hset(String key, String item, Object value, long time) {
+        return orElse("hset", key, Mono.defer(() -> executeAndExpire(RedisLuaScripts.HMSET_AND_EXPIRE, key, time,
+                Arrays.asList(null, rawHashKey(item), valueSerializer.serialize(value)))).thenReturn(true), false);
+    }
+
+    /**
+     * 删除hash表中的值
+     *
+     * @param key  键 不能为null
+     * @param item 项 可以使多个 不能为null
+     * @return 删除的个数
+     */
+    public Mono<Long> hdel(String key, Object... item) {
+        return timed("hdel", key, written(key, template.opsForHash().remove(key, item)));
+    }
+
+    /**
+     * 判断hash表中是否有该项的值
+     *
+     * @param key  键 不能为null
+     * @param item 项 不能为null
+     * @return true 存在 false不存在
+     */
+    public Mono<Boolean> hHasKey(String key, String item) {
+        return timed("hHasKey", key, template.opsForHash().hasKey(key, item));
+    }
+
+    /**
+     * hash递增 如果不存在,就会创建一个 并把新增后的值返回
+     *
+     * @param key  键
+     * @param item 项
+     * @param by   要增加几(大于0)
+     * @return 递增后的值
+     */
+    public Mono<Double> hincr(String key, String item, double by) {
+        return timed("hincr", key, written(key, template.opsForHash().increment(key, item, by)));
+    }
+
+    /**
+     * hash递减
+     *
+     * @param key  键
+     * @param item 项
+     * @param by   要减少记(小于0)
+     * @return 递减后的值
+     */
+    public Mono<Double> hdecr(String key, String item, double by) {
+        return timed("hdecr", key, written(key, template.opsForHash().increment(key, item, -by)));
+    }
+
+    // ============================set=============================
+
+    /**
+     * 根据key获取Set中的所有值
+     *
+     * @param key 键
+     * @return 值
+     */
+    public Mono<Set<Object>> sGet(String key) {
+        return orEmpty("sGet", key, template.opsForSet().members(key).<Set<Object>>collect(LinkedHashSet::new, Set::add));
+    }
+
+    /**
+     * 根据value从一个set中查询,是否存在
+     *
+     * @param key   键
+     * @param value 值
+     * @return true 存在 false不存在
+     */
+    public Mono<Boolean> sHasKey(String key, Object value) {
+        return orElse("sHasKey", key, template.opsForSet().isMember(key, value), false);
+    }
+
+    /**
+     * 将数据放入set缓存
+     *
+     * @param key    键
+     * @param values 值 可以是多个
+     * @return 成功个数
+     */
+    public Mono<Long> sSet(String key, Object... values) {
+        return orElse("sSet", key, written(key, template.opsForSet().add(key, values)), 0L);
+    }
+
+    /**
+     * 将set数据放入缓存，写入和过期在一次往返内原子完成
+     *
+     * @param key    键
+     * @param time   时间(秒)
+     * @param values 值 可以是多个
+     * @return 成功个数
+     */
+    public Mono<Long> sSetAndTime(String key, long time, Object... values) {
+        return orElse("sSetAndTime", key, Mono.defer(() ->
+                executeAndExpire(RedisLuaScripts.SADD_AND_EXPIRE, key, time, rawValues(Arrays.asList(values)))), 0L);
+    }
+
+    /**
+     * 获取set缓存的长度
+     *
+     * @param key 键
+     * @return 长度
+     */
+    public Mono<Long> sGetSetSize(String key) {
+        return orElse("sGetSetSize", key, template.opsForSet().size(key), 0L);
+    }
+
+    /**
+     * 移除值为value的
+     *
+     * @param key    键
+     * @param values 值 可以是多个
+     * @return 移除的个数
+     */
+    public Mono<Long> setRemove(String key, Object... values) {
+        return orElse("setRemove", key, written(key, template.opsForSet().remove(key, values)), 0L);
+    }
+
+    // ===============================list=================================
+
+    /**
+     * 获取list缓存的内容
+     *
+     * @param key   键
+     * @param start 开始
+     * @param end   结束 0 到 -1代表所有值
+     * @return 值
+     */
+    public Mono<List<Object>> lGet(String key, long start, long end) {
+        return orEmpty("lGet", key, template.opsForList().range(key, start, end).collectList());
+    }
+
+    /**
+     * 获取list缓存的长度
+     *
+     * @param key 键
+     * @return 长度
+     */
+    public Mono<Long> lGetListSize(String key) {
+        return orElse("lGetListSize", key, template.opsForList().size(key), 0L);
+    }
+
+    /**
+     * 通过索引 获取list中的值
+     *
+     * @param key   键
+     * @param index 索引 index>=0时， 0 表头，1 第二个元素，依次类推；index<0时，-1，表尾，-2倒数第二个元素，依次类推
+     * @return 值
+     */
+    public Mono<Object> lGetIndex(String key, long index) {
+        return orEmpty("lGetIndex", key, template.opsForList().index(key, index));
+    }
+
+    /**
+     * 将list放入缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> lSet(String key, Object value) {
+        return orElse("lSet", key, written(key, template.opsForList().rightPush(key, value)).thenReturn(true), false);
+    }
+
+    /**
+     * 将list放入缓存，写入和过期在一次往返内原子完成
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒)
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> lSet(String key, Object value, long time) {
+        return orElse("lSet", key, Mono.defer(() -> executeAndExpire(RedisLuaScripts.RPUSH_AND_EXPIRE, key, time,
+                Arrays.asList(null, valueSerializer.serialize(value)))).thenReturn(true), false);
+    }
+
+    /**
+     * 将list放入缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> lSet(String key, List<Object> value) {
+        return orElse("lSet", key, written(key, template.opsForList().rightPushAll(key, value)).thenReturn(true), false);
+    }
+
+    /**
+     * 将list放入缓存，写入和过期在一次往返内原子完成
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒)
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> lSet(String key, List<Object> value, long time) {
+        return orElse("lSet", key, Mono.defer(() ->
+                executeAndExpire(RedisLuaScripts.RPUSH_AND_EXPIRE, key, time, rawValues(value))).thenReturn(true), false);
+    }
+
+    /**
+     * 根据索引修改list中的某条数据
+     *
+     * @param key   键
+     * @param index 索引
+     * @param value 值
+     * @return true成功 false失败
+     */
+    public Mono<Boolean> lUpdateIndex(String key, long index, Object value) {
+        return orElse("lUpdateIndex", key, written(key, template.opsForList().set(key, index, value)).thenReturn(true), false);
+    }
+
+    /**
+     * 移除N个值为value
+     *
+     * @param key   键
+     * @param count 移除多少个
+     * @param value 值
+     * @return 移除的个数
+     */
+    public Mono<Long> lRemove(String key, long count, Object value) {
+        return orElse("lRemove", key, written(key, template.opsForList().remove(key, count, value)), 0L);
+    }
+
+    // ===============================chunk=================================
+
+    /**
+     * 反序列化读到的原始内容，是分片清单时读取全部分片拼接还原，分片缺失时按未命中返回空
+     */
+    private Mono<Object> readValue(String key, byte[] raw) {
+        if (!RedisChunkManifest.isManifest(raw)) {
+            return Mono.justOrEmpty(valueSerializer.deserialize(raw));
+        }
+        RedisChunkManifest manifest = RedisChunkManifest.decode(raw);
+        List<ByteBuffer> chunkKeys = rawChunkKeys(key, manifest);
+        return template.execute(connection -> Flux.fromIterable(chunkKeys)
+                        .flatMapSequential(chunkKey -> connection.stringCommands().get(chunkKey)))
+                .map(ByteUtils::getBytes)
+                .collectList()
+                .flatMap(parts -> {
+                    byte[] joined = manifest.join(parts);
+                    return joined == null ? Mono.empty() : Mono.justOrEmpty(valueSerializer.deserialize(joined));
+                });
+    }
+
+    /**
+     * 与 RedisManager 相同：达到阈值的value先写分片，再通过 SET_AND_GET_MANIFEST 替换原key，旧分片延迟回收
+     */
+    private Mono<Boolean> writeValue(String key, Object value, long time) {
+        return written(key, Mono.defer(() -> {
+            byte[] raw = valueSerializer.serialize(value);
+            Mono<byte[]> stored = raw.length >= chunk.getThresholdBytes() ? writeChunks(key, raw, time) : Mono.just(raw);
+            return stored.flatMap(storedRaw -> evalChunkScript(RedisLuaScripts.SET_AND_GET_MANIFEST, key, time, storedRaw))
+                    .flatMap(old -> expireChunks(key, RedisChunks.manifestOf(old), chunk.getGraceSeconds()).thenReturn(true));
+        }));
+    }
+
+    /**
+     * 写入新版本的分片，全部写入后返回清单
+     */
+    private Mono<byte[]> writeChunks(String key, byte[] raw, long time) {
+        byte[][] chunks = RedisChunks.split(raw, chunk.getChunkBytes());
+        RedisChunkManifest manifest = new RedisChunkManifest(Util.getUUID(), chunks.length, raw.length);
+        long chunkTime = RedisChunks.chunkTime(time, chunk);
+        Expiration expiration = chunkTime > 0 ? Expiration.seconds(chunkTime) : Expiration.persistent();
+        List<ByteBuffer> chunkKeys = rawChunkKeys(key, manifest);
+        return template.execute(connection -> Flux.range(0, chunks.length)
+                        .flatMap(i -> connection.stringCommands().set(chunkKeys.get(i), ByteBuffer.wrap(chunks[i]),
+                                expiration, RedisStringCommands.SetOption.upsert())))
+                .then(Mono.fromSupplier(manifest::encode));
+    }
+
+    /**
+     * 执行 RedisLuaScripts 中的分片脚本，ARGV[1] 为 time，value 不为null时作为 ARGV[2]，脚本返回nil时为空数组
+     */
+    private Mono<byte[]> evalChunkScript(RedisScript<byte[]> script, String key, long time, byte[] value) {
+        List<byte[]> args = value == null
+                ? Collections.singletonList(RedisChunks.rawNumber(time))
+                : Arrays.asList(RedisChunks.rawNumber(time), value);
+        return template.execute(script, Collections.singletonList(key), args, RAW_WRITER, RAW_READER)
+                .next()
+                .defaultIfEmpty(EMPTY);
+    }
+
+    /**
+     * 设置分片过期时间，seconds 小于等于0时直接UNLINK，清单为null时不处理
+     */
+    private Mono<Void> expireChunks(String key, RedisChunkManifest manifest, long seconds) {
+        if (manifest == null) {
+            return Mono.empty();
+        }
+        List<ByteBuffer> chunkKeys = rawChunkKeys(key, manifest);
+        return template.execute(connection -> Flux.fromIterable(chunkKeys)
+                        .flatMap(chunkKey -> seconds > 0
+                                ? connection.keyCommands().expire(chunkKey, Duration.ofSeconds(seconds)).then()
+                                : connection.keyCommands().unlink(chunkKey).then()))
+                .then();
+    }
+
+    private List<ByteBuffer> rawChunkKeys(String key, RedisChunkManifest manifest) {
+        List<ByteBuffer> chunkKeys = new ArrayList<>(manifest.getChunkCount());
+        for (int i = 0; i < manifest.getChunkCount(); i++) {
+            chunkKeys.add(template.getSerializationContext().getKeySerializationPair().write(manifest.chunkKey(key, i)));
+        }
+        return chunkKeys;
+    }
+
+    // ===============================script=================================
+
+    /**
+     * 执行写入并设置过期时间的脚本
+     *
+     * @param args 脚本参数，下标0预留给过期时间
+     */
+    private Mono<Long> executeAndExpire(RedisScript<Long> script, String key, long time, List<byte[]> args) {
+        args.set(0, String.valueOf(time).getBytes(StandardCharsets.UTF_8));
+        return written(key, template.execute(script, Collections.singletonList(key), args, RAW_WRITER, LONG_READER)
+                .next()
+                .defaultIfEmpty(0L));
+    }
+
+    /**
+     * 序列化多个值，下标0预留给过期时间
+     */
+    private List<byte[]> rawValues(List<?> values) {
+        List<byte[]> args = new ArrayList<>(values.size() + 1);
+        args.add(null);
+        for (Object value : values) {
+            args.add(valueSerializer.serialize(value));
+        }
+        return args;
+    }
+
+    private static byte[] rawHashKey(String hashKey) {
+        return hashKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ===============================near cache=================================
+
+    /**
+     * 写入成功后清理近端缓存并记录写入
+     */
+    private <T> Mono<T> written(String key, Mono<T> write) {
+        return write.flatMap(result -> afterWrite(Collections.singletonList(key)).thenReturn(result));
+    }
+
+    /**
+     * key被修改后清理本地近端缓存并异步通知其他节点，同时记录写入，通知失败只记录日志
+     */
+    private Mono<Void> afterWrite(List<String> keys) {
+        Mono<Void> publish = Mono.empty();
+        for (String key : keys) {
+            if (readRouter != null) {
+                readRouter.written(key);
+            }
+            byte[] message = nearCache == null ? null : nearCache.invalidateLocal(key);
+            if (message != null) {
+                publish = publish.then(template.execute(connection -> connection.pubSubCommands()
+                                .publish(ByteBuffer.wrap(nearCache.getChannel()), ByteBuffer.wrap(message)))
+                        .then()
+                        .onErrorResume(e -> {
+                            log.error("近端缓存失效广播异常，key：{}", key, e);
+                            return Mono.empty();
+                        }));
+            }
+        }
+        return publish;
+    }
+
+    // ===============================metrics=================================
+
+    /**
+     * 记录耗时，出错时向下游抛出
+     */
+    private <T> Mono<T> timed(String operation, String key, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return mono.doOnError(e -> metrics.error(operation, key))
+                    .doFinally(signal -> metrics.record(operation, key, startNanos));
+        });
+    }
+
+    /**
+     * 记录耗时，出错时记录日志并返回fallback
+     */
+    private <T> Mono<T> orElse(String operation, String key, Mono<T> mono, T fallback) {
+        return timed(operation, key, mono).onErrorResume(e -> {
+            log.error("redis操作[{}]异常，key：{}", operation, key, e);
+            return Mono.just(fallback);
+        });
+    }
+
+    /**
+     * 记录耗时，出错时记录日志并返回空
+     */
+    private <T> Mono<T> orEmpty(String operation, String key, Mono<T> mono) {
+        return timed(operation, key, mono).onErrorResume(e -> {
+            log.error("redis操作[{}]异常，key：{}", operation, key, e);
+            return Mono.empty();
+        });
+    }
+}
@@ -0,0 +1,580 @@
+package com.mdx.common.manager;
+
+import com.mdx.common.config.MdxRedisProperties;
+import com.mdx.common.config.RedisChunkManifest;
+import com.mdx.common.metrics.RedisMetrics;
+import com.mdx.common.util.Util;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * redis 异步视图，通过 {@link RedisManager#async()} 或 {@link RedisManager#asyncPipelined()} 获取
+ * <p>
+ * 基于lettuce异步命令，方法立即返回 CompletableFuture，多个互不依赖的读取可以并行发出再统一等待。
+ * 与 RedisManager 使用同一套序列化；出错时future异常完成，不返回false/null。
+ * 写入后同样清理近端缓存并异步广播，读取不经过本地近端缓存。
+ * 读到分片清单时再发一次MGET读取分片拼接；开启分片时写入、删除、设置过期时间与 RedisManager 一样经过分片脚本。
+ * 回调在lettuce io线程执行，回调中不要调用阻塞方法
+ */
+public class RedisAsyncView {
+    private static final Logger log = LoggerFactory.getLogger(RedisAsyncView.class);
+
+    private final StatefulConnection<byte[], byte[]> connection;
+
+    private final RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+    private final RedisSerializer<String> keySerializer;
+
+    private final RedisSerializer<Object> valueSerializer;
+
+    private final RedisSerializer<Object> hashKeySerializer;
+
+    private final RedisSerializer<Object> hashValueSerializer;
+
+    private final RedisNearCache nearCache;
+
+    private final RedisReadRouter readRouter;
+
+    private final RedisMetrics metrics;
+
+    private final MdxRedisProperties.Chunk chunk;
+
+    /**
+     * 合并刷新，未开启时为null
+     */
+    private final Flusher flusher;
+
+    @SuppressWarnings("unchecked")
+    RedisAsyncView(StatefulConnection<byte[], byte[]> connection, RedisClusterAsyncCommands<byte[], byte[]> commands,
+                   RedisTemplate<String, Object> redisTemplate,
+                   RedisNearCache nearCache, RedisReadRouter readRouter, RedisMetrics metrics,
+                   MdxRedisProperties.Chunk chunk, Executor flushExecutor) {
+        this.connection = connection;
+        this.commands = commands;
+        this.keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        this.valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        this.hashKeySerializer = (RedisSerializer<Object>) redisTemplate.getHashKeySerializer();
+        this.hashValueSerializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        this.nearCache = nearCache;
+        this.readRouter = readRouter;
+        this.metrics = metrics;
+        this.chunk = chunk;
+        if (flushExecutor != null) {
+            connection.setAutoFlushCommands(false);
+            this.flusher = new Flusher(connection, flushExecutor);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * 是否合并刷新
+     */
+    public boolean isPipelined() {
+        return flusher != null;
+    }
+
+    // =============================common============================
+
+    /**
+     * 指定缓存失效时间
+     *
+     * @param key  键
+     * @param time 时间(秒) 小于等于0时不处理
+     * @return true成功
+     */
+    public CompletableFuture<Boolean> expire(String key, long time) {
+        if (time <= 0) {
+            return CompletableFuture.completedFuture(true);
+        }
+        if (chunk.isEnabled()) {
+            long startNanos = System.nanoTime();
+            return complete("expire", key, startNanos, evalChunkScript(RedisLuaScripts.EXPIRE_AND_GET_MANIFEST, key, time, null)
+                    .thenCompose(reply -> expireChunks(key, RedisChunks.manifestOf(reply), RedisChunks.chunkTime(time, chunk))
+                            .thenApply(v -> {
+                                afterWrite(key);
+                                return RedisChunks.countOf(reply) > 0;
+                            })));
+        }
+        return written("expire", key, commands.expire(rawKey(key), time), result -> Boolean.TRUE.equals(result));
+    }
+
+    /**
+     * 判断key是否存在
+     *
+     * @param key 键
+     * @return true 存在 false不存在
+     */
+    public CompletableFuture<Boolean> hasKey(String key) {
+        return read("hasKey", key, commands.exists(rawKey(key)), count -> count != null && count > 0);
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 可以传一个值 或多个
+     * @return 删除的个数
+     */
+    public CompletableFuture<Long> del(String... key) {
+        if (key == null || key.length == 0) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        if (chunk.isEnabled()) {
+            return delChunked(key);
+        }
+        byte[][] rawKeys = new byte[key.length][];
+        for (int i = 0; i < key.length; i++) {
+            rawKeys[i] = rawKey(key[i]);
+        }
+        long startNanos = System.nanoTime();
+        RedisFuture<Long> future = commands.del(rawKeys);
+        scheduleFlush();
+        return complete("del", null, startNanos, future.thenApply(count -> {
+            for (String k : key) {
+                afterWrite(k);
+            }
+            return count == null ? 0L : count;
+        }));
+    }
+
+    // ============================String=============================
+
+    /**
+     * 普通缓存获取
+     *
+     * @param key 键
+     * @return 值
+     */
+    public CompletableFuture<Object> get(String key) {
+        if (key == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long startNanos = System.nanoTime();
+        RedisFuture<byte[]> future = commands.get(rawKey(key));
+        scheduleFlush();
+        return complete("get", key, startNanos, future.thenCompose(raw -> readValue(key, raw)));
+    }
+
+    /**
+     * 批量获取普通缓存，一次MGET
+     *
+     * @param keys 键
+     * @return 值 与keys顺序一致，未命中的位置为null
+     */
+    public CompletableFuture<List<Object>> mget(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        byte[][] rawKeys = new byte[keyList.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = rawKey(keyList.get(i));
+        }
+        long startNanos = System.nanoTime();
+        RedisFuture<List<KeyValue<byte[], byte[]>>> future = commands.mget(rawKeys);
+        scheduleFlush();
+        return complete("mget", null, startNanos, future.thenCompose(values -> {
+            List<CompletableFuture<Object>> results = new ArrayList<>(values.size());
+            for (int i = 0; i < values.size(); i++) {
+                KeyValue<byte[], byte[]> value = values.get(i);
+                results.add(readValue(keyList.get(i), value.hasValue() ? value.getValue() : null).toCompletableFuture());
+            }
+            return CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).thenApply(v -> {
+                List<Object> result = new ArrayList<>(results.size());
+                for (CompletableFuture<Object> value : results) {
+                    result.add(value.join());
+                }
+                return result;
+            });
+        }));
+    }
+
+    /**
+     * 普通缓存放入
+     *
+     * @param key   键
+     * @param value 值
+     * @return true成功
+     */
+    public CompletableFuture<Boolean> set(String key, Object value) {
+        if (chunk.isEnabled()) {
+            return writeValue(key, value, -1);
+        }
+        return written("set", key, commands.set(rawKey(key), rawValue(value)), result -> true);
+    }
+
+    /**
+     * 普通缓存放入并设置时间
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒) time要大于0 如果time小于等于0 将设置无限期
+     * @return true成功
+     */
+    public CompletableFuture<Boolean> set(String key, Object value, long time) {
+        if (time <= 0) {
+            return set(key, value);
+        }
+        if (chunk.isEnabled()) {
+            return writeValue(key, value, time);
+        }
+        return written("set", key, commands.setex(rawKey(key), time, rawValue(value)), result -> true);
+    }
+
+    /**
+     * 递增
+     *
+     * @param key   键
+     * @param delta 要增加几(大于0)
+     * @return 递增后的值
+     */
+    public CompletableFuture<Long> incr(String key, long delta) {
+        if (delta < 0) {
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            future.completeExceptionally(new RuntimeException("递增因子必须大于0"));
+            return future;
+        }
+        return written("incr", key, commands.incrby(rawKey(key), delta), Function.identity());
+    }
+
+    // ================================Map=================================
+
+    /**
+     * HashGet
+     *
+     * @param key  键 不能为null
+     * @param item 项 不能为null
+     * @return 值
+     */
+    public CompletableFuture<Object> hget(String key, String item) {
+        return read("hget", key, commands.hget(rawKey(key), hashKeySerializer.serialize(item)), hashValueSerializer::deserialize);
+    }
+
+    /**
+     * 获取hashKey对应的所有键值
+     *
+     * @param key 键
+     * @return 对应的多个键值
+     */
+    public CompletableFuture<Map<Object, Object>> hmget(String key) {
+        return read("hmget", key, commands.hgetall(rawKey(key)), entries -> {
+            Map<Object, Object> result = new LinkedHashMap<>(entries.size() * 2);
+            for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                result.put(hashKeySerializer.deserialize(entry.getKey()), hashValueSerializer.deserialize(entry.getValue()));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 向一张hash表中放入数据,如果不存在将创建
+     *
+     * @param key   键
+     * @param item  项
+     * @param value 值
+     * @return true 成功
+     */
+    public CompletableFuture<Boolean> hset(String key, String item, Object value) {
+        return written("hset", key, commands.hset(rawKey(key), hashKeySerializer.serialize(item),
+                hashValueSerializer.serialize(value)), result -> true);
+    }
+
+    /**
+     * HashSet
+     *
+     * @param key 键
+     * @param map 对应多个键值
+     * @return true 成功
+     */
+    public CompletableFuture<Boolean> hmset(String key, Map<String, Object> map) {
+        Map<byte[], byte[]> raw = new LinkedHashMap<>(map.size() * 2);
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            raw.put(hashKeySerializer.serialize(entry.getKey()), hashValueSerializer.serialize(entry.getValue()));
+        }
+        return written("hmset", key, commands.hset(rawKey(key), raw), result -> true);
+    }
+
+    // ============================set=============================
+
+    /**
+     * 根据key获取Set中的所有值
+     *
+     * @param key 键
+     * @return 值
+     */
+    public CompletableFuture<Set<Object>> sGet(String key) {
+        return read("sGet", key, commands.smembers(rawKey(key)), members -> {
+            Set<Object> result = new LinkedHashSet<>(members.size() * 2);
+            for (byte[] member : members) {
+                result.add(valueSerializer.deserialize(member));
+            }
+            return result;
+        });
+    }
+
+    // ===============================list=================================
+
+    /**
+     * 获取list缓存的内容
+     *
+     * @param key   键
+     * @param start 开始
+     * @param end   结束 0 到 -1代表所有值
+     * @return 值
+     */
+    public CompletableFuture<List<Object>> lGet(String key, long start, long end) {
+        return read("lGet", key, commands.lrange(rawKey(key), start, end), values -> {
+            List<Object> result = new ArrayList<>(values.size());
+            for (byte[] value : values) {
+                result.add(valueSerializer.deserialize(value));
+            }
+            return result;
+        });
+    }
+
+    // ===============================chunk=================================
+
+    /**
+     * 反序列化读到的值，读到分片清单时通过MGET读取全部分片拼接还原，分片缺失时按未命中返回null
+     */
+    private CompletionStage<Object> readValue(String key, byte[] raw) {
+        if (!RedisChunkManifest.isManifest(raw)) {
+            return CompletableFuture.completedFuture(valueSerializer.deserialize(raw));
+        }
+        RedisChunkManifest manifest = RedisChunkManifest.decode(raw);
+        RedisFuture<List<KeyValue<byte[], byte[]>>> future = commands.mget(rawChunkKeys(key, manifest));
+        scheduleFlush();
+        return future.thenApply(values -> {
+            List<byte[]> parts = new ArrayList<>(values.size());
+            for (KeyValue<byte[], byte[]> part : values) {
+                parts.add(part.hasValue() ? part.getValue() : null);
+            }
+            byte[] joined = manifest.join(parts);
+            return joined == null ? null : valueSerializer.deserialize(joined);
+        });
+    }
+
+    /**
+     * 与 RedisManager 相同：达到阈值的value先写分片，再通过 SET_AND_GET_MANIFEST 替换原key，旧分片延迟回收
+     */
+    private CompletableFuture<Boolean> writeValue(String key, Object value, long time) {
+        long startNanos = System.nanoTime();
+        byte[] raw = rawValue(value);
+        CompletionStage<byte[]> stored = raw.length >= chunk.getThresholdBytes()
+                ? writeChunks(key, raw, time) : CompletableFuture.completedFuture(raw);
+        return complete("set", key, startNanos, stored
+                .thenCompose(storedRaw -> evalChunkScript(RedisLuaScripts.SET_AND_GET_MANIFEST, key, time, storedRaw))
+                .thenCompose(old -> expireChunks(key, RedisChunks.manifestOf(old), chunk.getGraceSeconds()))
+                .thenApply(v -> {
+                    afterWrite(key);
+                    return true;
+                }));
+    }
+
+    /**
+     * 写入新版本的分片，全部写入后返回清单
+     */
+    private CompletionStage<byte[]> writeChunks(String key, byte[] raw, long time) {
+        byte[][] chunks = RedisChunks.split(raw, chunk.getChunkBytes());
+        RedisChunkManifest manifest = new RedisChunkManifest(Util.getUUID(), chunks.length, raw.length);
+        long chunkTime = RedisChunks.chunkTime(time, chunk);
+        CompletableFuture<?>[] futures = new CompletableFuture[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            byte[] chunkKey = rawKey(manifest.chunkKey(key, i));
+            futures[i] = (chunkTime > 0 ? commands.setex(chunkKey, chunkTime, chunks[i])
+                    : commands.set(chunkKey, chunks[i])).toCompletableFuture();
+        }
+        scheduleFlush();
+        return CompletableFuture.allOf(futures).thenApply(v -> manifest.encode());
+    }
+
+    /**
+     * 逐个key执行 DEL_AND_GET_MANIFEST，被删除清单的分片延迟回收
+     */
+    private CompletableFuture<Long> delChunked(String... key) {
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<Long>> counts = new ArrayList<>(key.length);
+        for (String k : key) {
+            counts.add(evalChunkScript(RedisLuaScripts.DEL_AND_GET_MANIFEST, k, 0, null)
+                    .thenCompose(reply -> expireChunks(k, RedisChunks.manifestOf(reply), chunk.getGraceSeconds())
+                            .thenApply(v -> {
+                                afterWrite(k);
+                                return RedisChunks.countOf(reply);
+                            }))
+                    .toCompletableFuture());
+        }
+        return complete("del", null, startNanos, CompletableFuture.allOf(counts.toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    long count = 0;
+                    for (CompletableFuture<Long> deleted : counts) {
+                        count += deleted.join();
+                    }
+                    return count;
+                }));
+    }
+
+    /**
+     * 执行 RedisLuaScripts 中的分片脚本，ARGV[1] 为 time，value 不为null时作为 ARGV[2]。
+     * 先用EVALSHA，节点上没有缓存脚本(NOSCRIPT)时改用EVAL
+     */
+    private CompletionStage<byte[]> evalChunkScript(RedisScript<byte[]> script, String key, long time, byte[] value) {
+        byte[][] keys = {rawKey(key)};
+        byte[][] args = value == null
+                ? new byte[][]{RedisChunks.rawNumber(time)}
+                : new byte[][]{RedisChunks.rawNumber(time), value};
+        RedisFuture<byte[]> future = commands.evalsha(script.getSha1(), ScriptOutputType.VALUE, keys, args);
+        scheduleFlush();
+        return future.handle((reply, e) -> {
+            if (e == null) {
+                return CompletableFuture.completedFuture(reply);
+            }
+            if (!RedisChunks.isNoScript(e)) {
+                CompletableFuture<byte[]> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            RedisFuture<byte[]> retry = commands.eval(RedisChunks.script(script), ScriptOutputType.VALUE, keys, args);
+            scheduleFlush();
+            return retry.toCompletableFuture();
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * 设置分片过期时间，seconds 小于等于0时直接UNLINK，清单为null时不处理
+     */
+    private CompletionStage<Void> expireChunks(String key, RedisChunkManifest manifest, long seconds) {
+        if (manifest == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        byte[][] chunkKeys = rawChunkKeys(key, manifest);
+        CompletableFuture<?>[] futures = new CompletableFuture[chunkKeys.length];
+        for (int i = 0; i < chunkKeys.length; i++) {
+            futures[i] = (seconds > 0 ? commands.expire(chunkKeys[i], seconds)
+                    : commands.unlink(chunkKeys[i])).toCompletableFuture();
+        }
+        scheduleFlush();
+        return CompletableFuture.allOf(futures);
+    }
+
+    private byte[][] rawChunkKeys(String key, RedisChunkManifest manifest) {
+        byte[][] chunkKeys = new byte[manifest.getChunkCount()][];
+        for (int i = 0; i < chunkKeys.length; i++) {
+            chunkKeys[i] = rawKey(manifest.chunkKey(key, i));
+        }
+        return chunkKeys;
+    }
+
+    // ===============================internal=================================
+
+    private <R, T> CompletableFuture<T> read(String operation, String key, RedisFuture<R> future, Function<R, T> mapper) {
+        long startNanos = System.nanoTime();
+        scheduleFlush();
+        return complete(operation, key, startNanos, future.thenApply(mapper));
+    }
+
+    private <R, T> CompletableFuture<T> written(String operation, String key, RedisFuture<R> future, Function<R, T> mapper) {
+        long startNanos = System.nanoTime();
+        scheduleFlush();
+        return complete(operation, key, startNanos, future.thenApply(result -> {
+            afterWrite(key);
+            return mapper.apply(result);
+        }));
+    }
+
+    private <T> CompletableFuture<T> complete(String operation, String key, long startNanos, CompletionStage<T> stage) {
+        String name = "async." + operation;
+        return stage.whenComplete((result, e) -> {
+            if (e != null) {
+                metrics.error(name, key);
+            }
+            metrics.record(name, key, startNanos);
+        }).toCompletableFuture();
+    }
+
+    /**
+     * 记录写入，清理本地近端缓存并异步广播
+     */
+    private void afterWrite(String key) {
+        if (readRouter != null) {
+            readRouter.written(key);
+        }
+        byte[] message = nearCache == null ? null : nearCache.invalidateLocal(key);
+        if (message != null) {
+            commands.publish(nearCache.getChannel(), message).whenComplete((count, e) -> {
+                if (e != null) {
+                    log.error("近端缓存失效广播异常，key：{}", key, e);
+                }
+            });
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flusher != null) {
+            flusher.schedule();
+        }
+    }
+
+    private byte[] rawKey(String key) {
+        return keySerializer.serialize(key);
+    }
+
+    private byte[] rawValue(Object value) {
+        return valueSerializer.serialize(value);
+    }
+
+    void close() {
+        if (flusher != null) {
+            connection.flushCommands();
+        }
+        connection.close();
+    }
+
+    /**
+     * 合并刷新：连接关闭自动刷新后命令先写入缓冲区，第一个命令触发一次刷新任务，
+     * 刷新任务执行前同一时刻发出的命令一起写出，减少系统调用和redis读取次数
+     */
+    private static final class Flusher implements Runnable {
+        private final StatefulConnection<byte[], byte[]> connection;
+        private final Executor executor;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Flusher(StatefulConnection<byte[], byte[]> connection, Executor executor) {
+            this.connection = connection;
+            this.executor = executor;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            scheduled.set(false);
+            connection.flushCommands();
+        }
+    }
+}
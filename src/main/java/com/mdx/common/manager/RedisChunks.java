@@ -0,0 +1,156 @@
+package com.mdx.common.manager;
+
+import com.mdx.common.config.MdxRedisProperties;
+import com.mdx.common.config.RedisChunkManifest;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 大value分片读写，RedisManager、只读视图、异步视图与 ReactiveRedisManager 共用
+ */
+final class RedisChunks {
+
+    private RedisChunks() {
+    }
+
+    /**
+     * 读取普通缓存，读到分片清单时拼接分片
+     *
+     * @param template 读取所用的 RedisTemplate
+     * @param key      键
+     * @return 值
+     */
+    static Object get(RedisTemplate<String, Object> template, String key) {
+        byte[] rawKey = rawKey(template, key);
+        byte[] raw = template.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+        return resolve(template, key, raw);
+    }
+
+    /**
+     * 批量读取普通缓存，一次MGET，读到分片清单的位置再读取分片拼接
+     *
+     * @param template 读取所用的 RedisTemplate
+     * @param keys     键
+     * @return 值 与keys顺序一致，未命中的位置为null
+     */
+    static List<Object> multiGet(RedisTemplate<String, Object> template, List<String> keys) {
+        byte[][] rawKeys = new byte[keys.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = rawKey(template, keys.get(i));
+        }
+        List<byte[]> raws = template.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(rawKeys));
+        List<Object> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            result.add(raws == null ? null : resolve(template, keys.get(i), raws.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * 反序列化原key中读到的内容，是分片清单时通过管道读取全部分片并拼接还原。
+     * 清单只在这里识别，value序列化器不会把清单交给调用方
+     *
+     * @param template 读取清单所用的 RedisTemplate，分片从同一连接读取
+     * @param key      原key
+     * @param raw      原key中读到的原始内容
+     * @return 值，分片缺失时返回null，按未命中处理
+     */
+    static Object resolve(RedisTemplate<String, Object> template, String key, byte[] raw) {
+        if (!RedisChunkManifest.isManifest(raw)) {
+            return template.getValueSerializer().deserialize(raw);
+        }
+        RedisChunkManifest manifest = RedisChunkManifest.decode(raw);
+        List<Object> parts = template.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < manifest.getChunkCount(); i++) {
+                connection.stringCommands().get(rawKey(template, manifest.chunkKey(key, i)));
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+        byte[] joined = manifest.join(parts);
+        return joined == null ? null : template.getValueSerializer().deserialize(joined);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] rawKey(RedisTemplate<String, Object> template, String key) {
+        return ((RedisSerializer<String>) template.getKeySerializer()).serialize(key);
+    }
+
+    /**
+     * 按 chunkBytes 切分序列化后的value
+     */
+    static byte[][] split(byte[] raw, int chunkBytes) {
+        int size = Math.max(chunkBytes, 1);
+        byte[][] chunks = new byte[(raw.length + size - 1) / size][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Arrays.copyOfRange(raw, i * size, Math.min(raw.length, (i + 1) * size));
+        }
+        return chunks;
+    }
+
+    /**
+     * 分片过期时间(秒)，比清单多保留 graceSeconds，保证清单有效期内分片不会先过期
+     *
+     * @param time 清单过期时间(秒) 小于等于0表示不过期
+     * @return 分片过期时间，小于等于0表示不过期
+     */
+    static long chunkTime(long time, MdxRedisProperties.Chunk properties) {
+        return time > 0 ? time + Math.max(properties.getGraceSeconds(), 0) : -1;
+    }
+
+    /**
+     * 脚本原文，用于管道与 lettuce 原生命令中的 EVAL
+     */
+    static byte[] script(RedisScript<?> script) {
+        return script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 数字参数的原始字节
+     */
+    static byte[] rawNumber(long value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解析 RedisLuaScripts 中分片脚本的返回值
+     *
+     * @return 返回值为分片清单时解码，否则为null
+     */
+    static RedisChunkManifest manifestOf(byte[] reply) {
+        return RedisChunkManifest.isManifest(reply) ? RedisChunkManifest.decode(reply) : null;
+    }
+
+    /**
+     * 解析 DEL_AND_GET_MANIFEST、EXPIRE_AND_GET_MANIFEST 的返回值，返回清单说明原key存在
+     *
+     * @return 删除或设置成功的个数
+     */
+    static long countOf(byte[] reply) {
+        if (reply == null || reply.length == 0) {
+            return 0;
+        }
+        if (RedisChunkManifest.isManifest(reply)) {
+            return 1;
+        }
+        return Long.parseLong(new String(reply, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 是否为节点上没有缓存脚本导致的错误(NOSCRIPT)，此时需要改用EVAL
+     */
+    static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
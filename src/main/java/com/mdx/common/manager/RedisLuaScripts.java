@@ -0,0 +1,137 @@
+package com.mdx.common.manager;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * RedisManager 使用的lua脚本
+ * <p>
+ * 写入和设置过期时间在一次往返内原子完成；脚本sha只计算一次，执行时优先EVALSHA，
+ * 服务端未缓存时自动退回EVAL。约定 KEYS[1] 为键，ARGV[1] 为过期时间(秒)，大于0时才设置，
+ * 其余参数分段展开，避免参数过多超出lua栈大小
+ */
+final class RedisLuaScripts {
+
+    /**
+     * 单次unpack展开的参数个数，必须为偶数保证hash的项和值成对
+     */
+    private static final String UNPACK_STEP = "1000";
+
+    /**
+     * HMSET 并设置过期时间，ARGV[2..] 为项和值交替排列，返回1
+     */
+    static final RedisScript<Long> HMSET_AND_EXPIRE = new DefaultRedisScript<>(
+            "local n = #ARGV\n" +
+            "for i = 2, n, " + UNPACK_STEP + " do\n" +
+            "    redis.call('HMSET', KEYS[1], unpack(ARGV, i, math.min(i + " + UNPACK_STEP + " - 1, n)))\n" +
+            "end\n" +
+            "if tonumber(ARGV[1]) > 0 then\n" +
+            "    redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "end\n" +
+            "return 1", Long.class);
+
+    /**
+     * SADD 并设置过期时间，ARGV[2..] 为值，返回新增个数
+     */
+    static final RedisScript<Long> SADD_AND_EXPIRE = new DefaultRedisScript<>(
+            "local n = #ARGV\n" +
+            "local count = 0\n" +
+            "for i = 2, n, " + UNPACK_STEP + " do\n" +
+            "    count = count + redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + " + UNPACK_STEP + " - 1, n)))\n" +
+            "end\n" +
+            "if tonumber(ARGV[1]) > 0 then\n" +
+            "    redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "end\n" +
+            "return count", Long.class);
+
+    /**
+     * RPUSH 并设置过期时间，ARGV[2..] 为值，返回list长度
+     */
+    static final RedisScript<Long> RPUSH_AND_EXPIRE = new DefaultRedisScript<>(
+            "local n = #ARGV\n" +
+            "local size = 0\n" +
+            "for i = 2, n, " + UNPACK_STEP + " do\n" +
+            "    size = redis.call('RPUSH', KEYS[1], unpack(ARGV, i, math.min(i + " + UNPACK_STEP + " - 1, n)))\n" +
+            "end\n" +
+            "if tonumber(ARGV[1]) > 0 then\n" +
+            "    redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "end\n" +
+            "return size", Long.class);
+
+    /**
+     * 租约不存在或已释放时抢占，ARGV[2] 为持有者。
+     * 成功返回上一个持有者释放时记录的最后编号时间(毫秒)，没有记录时返回0，已被占用返回-1
+     */
+    static final RedisScript<Long> LEASE_ACQUIRE = new DefaultRedisScript<>(
+            "local old = redis.call('GET', KEYS[1])\n" +
+            "if old and string.sub(old, 1, 9) ~= 'released:' then\n" +
+            "    return -1\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[1])\n" +
+            "if old then\n" +
+            "    return tonumber(string.sub(old, 10)) or 0\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    /**
+     * 持有者一致时续期，ARGV[2] 为持有者，成功返回1
+     */
+    static final RedisScript<Long> LEASE_RENEW = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[2] then\n" +
+            "    redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "    return 1\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    /**
+     * 持有者一致时释放，ARGV[2] 为持有者，ARGV[3] 为最后编号时间(毫秒)。
+     * 租约不删除，改为 released:最后编号时间 并保留 ARGV[1] 秒，下一个持有者从该时间之后开始编号
+     */
+    static final RedisScript<Long> LEASE_RELEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[2] then\n" +
+            "    redis.call('SET', KEYS[1], 'released:' .. ARGV[3], 'EX', ARGV[1])\n" +
+            "    return 1\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    /**
+     * 读取原key中的分片清单，不是清单时为false。先用GETRANGE只取首字节判断魔数(168 即 RedisChunkManifest.MAGIC)，
+     * 普通大value不会整个读入lua
+     */
+    private static final String OLD_MANIFEST =
+            "local old = false\n" +
+            "if redis.call('TYPE', KEYS[1]).ok == 'string' and redis.call('GETRANGE', KEYS[1], 0, 0) == '\\168' then\n" +
+            "    old = redis.call('GET', KEYS[1])\n" +
+            "end\n";
+
+    /**
+     * SET 并设置过期时间，ARGV[2] 为值，返回被覆盖的分片清单，没有时返回nil
+     */
+    static final RedisScript<byte[]> SET_AND_GET_MANIFEST = new DefaultRedisScript<>(
+            OLD_MANIFEST +
+            "if tonumber(ARGV[1]) > 0 then\n" +
+            "    redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[1])\n" +
+            "else\n" +
+            "    redis.call('SET', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return old", byte[].class);
+
+    /**
+     * DEL，ARGV[1] 不使用。原key为分片清单时返回清单，否则返回删除个数的字符串
+     */
+    static final RedisScript<byte[]> DEL_AND_GET_MANIFEST = new DefaultRedisScript<>(
+            OLD_MANIFEST +
+            "local count = redis.call('DEL', KEYS[1])\n" +
+            "return old or tostring(count)", byte[].class);
+
+    /**
+     * EXPIRE，ARGV[1] 为过期时间(秒)。原key为分片清单时返回清单，否则返回EXPIRE结果的字符串
+     */
+    static final RedisScript<byte[]> EXPIRE_AND_GET_MANIFEST = new DefaultRedisScript<>(
+            OLD_MANIFEST +
+            "local result = redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "return old or tostring(result)", byte[].class);
+
+    private RedisLuaScripts() {
+    }
+}
@@ -1,25 +1,120 @@
 package com.mdx.common.manager;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mdx.common.config.MdxRedisProperties;
+import com.mdx.common.config.RedisChunkManifest;
+import com.mdx.common.metrics.RedisMetrics;
+import com.mdx.common.util.RedissonUtil;
+import com.mdx.common.util.Util;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ConvertingCursor;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * redis 工具类
  */
 @Component
-public class RedisManager {
+public class RedisManager implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(RedisManager.class);
+
+    /**
+     * getOrLoad 缓存的空值标记
+     */
+    private static final String NULL_VALUE = "@@MDX_NULL@@";
+
+    /**
+     * getOrLoad 加载锁前缀
+     */
+    private static final String LOAD_LOCK_PREFIX = "load:";
+
+    /**
+     * 本节点正在加载中的key，同一个key同一时刻只有一个线程访问数据源
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> loadingFutures = new ConcurrentHashMap<>();
+
+    /**
+     * key最近一次加载耗时(毫秒)，用于计算提前刷新
+     */
+    private final Cache<String, Long> loadCosts = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 本地近端缓存，未开启时为null
+     */
+    @Autowired(required = false)
+    private RedisNearCache nearCache;
+
+    @Autowired
+    private MdxRedisProperties redisProperties;
+
+    /**
+     * 操作指标，未引入Micrometer时不记录
+     */
+    @Autowired(required = false)
+    private RedisMetrics metrics = RedisMetrics.NOOP;
+
+    /**
+     * 从节点读取路由，未开启时为null
+     */
+    @Autowired(required = false)
+    private RedisReadRouter readRouter;
+
+    private volatile RedisReadView readOnlyView;
+
+    private volatile RedisAsyncView asyncView;
+
+    private volatile RedisAsyncView pipelinedView;
+
+    private ExecutorService flushExecutor;
+
     // =============================common============================
 
     /**
@@ -32,11 +127,23 @@ public class RedisManager {
 
     public boolean expire(String key, long time) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             if (time > 0) {
 
-                redisTemplate.expire(key, time, TimeUnit.SECONDS);
+                if (redisProperties.getChunk().isEnabled()) {
+
+                    evalManifestScript(RedisLuaScripts.EXPIRE_AND_GET_MANIFEST, Collections.singletonList(key), time);
+
+                } else {
+
+                    redisTemplate.expire(key, time, TimeUnit.SECONDS);
+
+                }
+
+                invalidateNearCache(key);
 
             }
 
@@ -44,10 +151,16 @@ public class RedisManager {
 
         } catch (Exception e) {
 
+            metrics.error("expire", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("expire", key, startNanos);
+
         }
 
     }
@@ -61,7 +174,23 @@ public class RedisManager {
 
     public long getExpire(String key) {
 
-        return redisTemplate.getExpire(key, TimeUnit.SECONDS);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            return redisTemplate.getExpire(key, TimeUnit.SECONDS);
+
+        } catch (RuntimeException e) {
+
+            metrics.error("getExpire", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("getExpire", key, startNanos);
+
+        }
 
     }
 
@@ -74,16 +203,24 @@ public class RedisManager {
 
     public boolean hasKey(String key) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             return redisTemplate.hasKey(key);
 
         } catch (Exception e) {
 
+            metrics.error("hasKey", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("hasKey", key, startNanos);
+
         }
 
     }
@@ -98,18 +235,44 @@ public class RedisManager {
 
     public void del(String... key) {
 
-        if (key != null && key.length > 0) {
+        long startNanos = System.nanoTime();
 
-            if (key.length == 1) {
+        try {
 
-                redisTemplate.delete(key[0]);
+            if (key != null && key.length > 0) {
 
-            } else {
+                if (redisProperties.getChunk().isEnabled()) {
+
+                    evalManifestScript(RedisLuaScripts.DEL_AND_GET_MANIFEST, Arrays.asList(key), 0);
+
+                } else if (key.length == 1) {
+
+                    redisTemplate.delete(key[0]);
+
+                } else {
 
-                redisTemplate.delete((Collection<String>) CollectionUtils.arrayToList(key));
+                    redisTemplate.delete((Collection<String>) CollectionUtils.arrayToList(key));
+
+                }
+
+                for (String k : key) {
+
+                    invalidateNearCache(k);
+
+                }
 
             }
 
+        } catch (RuntimeException e) {
+
+            metrics.error("del", null);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("del", null, startNanos);
+
         }
 
     }
@@ -125,7 +288,35 @@ public class RedisManager {
 
     public Object get(String key) {
 
-        return key == null ? null : redisTemplate.opsForValue().get(key);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            if (key == null) {
+
+                return null;
+
+            }
+
+            if (nearCache != null && nearCache.isCacheable(key)) {
+
+                return nearCache.get(key, () -> readValue(key));
+
+            }
+
+            return readValue(key);
+
+        } catch (RuntimeException e) {
+
+            metrics.error("get", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("get", key, startNanos);
+
+        }
 
     }
 
@@ -139,18 +330,28 @@ public class RedisManager {
 
     public boolean set(String key, Object value) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
-            redisTemplate.opsForValue().set(key, value);
+            writeValue(key, value, -1);
+
+            refreshNearCache(key, value, -1);
 
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("set", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("set", key, startNanos);
+
         }
 
     }
@@ -166,26 +367,30 @@ public class RedisManager {
 
     public boolean set(String key, Object value, long time) {
 
-        try {
-
-            if (time > 0) {
+        long startNanos = System.nanoTime();
 
-                redisTemplate.opsForValue().set(key, value, time, TimeUnit.SECONDS);
+        try {
 
-            } else {
+            long expire = time > 0 ? time : -1;
 
-                set(key, value);
+            writeValue(key, value, expire);
 
-            }
+            refreshNearCache(key, value, expire);
 
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("set", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("set", key, startNanos);
+
         }
 
     }
@@ -200,13 +405,33 @@ public class RedisManager {
 
     public long incr(String key, long delta) {
 
-        if (delta < 0) {
+        long startNanos = System.nanoTime();
 
-            throw new RuntimeException("递增因子必须大于0");
+        try {
 
-        }
+            if (delta < 0) {
+
+                throw new RuntimeException("递增因子必须大于0");
+
+            }
+
+            long result = redisTemplate.opsForValue().increment(key, delta);
 
-        return redisTemplate.opsForValue().increment(key, delta);
+            invalidateNearCache(key);
+
+            return result;
+
+        } catch (RuntimeException e) {
+
+            metrics.error("incr", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("incr", key, startNanos);
+
+        }
 
     }
 
@@ -220,13 +445,33 @@ public class RedisManager {
 
     public long decr(String key, long delta) {
 
-        if (delta < 0) {
+        long startNanos = System.nanoTime();
 
-            throw new RuntimeException("递减因子必须大于0");
+        try {
 
-        }
+            if (delta < 0) {
+
+                throw new RuntimeException("递减因子必须大于0");
+
+            }
+
+            long result = redisTemplate.opsForValue().increment(key, -delta);
+
+            invalidateNearCache(key);
+
+            return result;
 
-        return redisTemplate.opsForValue().increment(key, -delta);
+        } catch (RuntimeException e) {
+
+            metrics.error("decr", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("decr", key, startNanos);
+
+        }
 
     }
 
@@ -241,11 +486,15 @@ public class RedisManager {
      * @return 值
      */
     public Object getByKeyAndHashKey(String key, Object hashKey) {
+        long startNanos = System.nanoTime();
         try {
             return redisTemplate.opsForHash().get(key, hashKey);
         } catch (Exception e) {
+            metrics.error("getByKeyAndHashKey", key);
             e.printStackTrace();
             return null;
+        } finally {
+            metrics.record("getByKeyAndHashKey", key, startNanos);
         }
     }
 
@@ -259,7 +508,29 @@ public class RedisManager {
 
     public Object hget(String key, String item) {
 
-        return redisTemplate.opsForHash().get(key, item);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            if (nearCache != null && nearCache.isCacheable(key)) {
+
+                return nearCache.hget(key, item, () -> redisTemplate.opsForHash().get(key, item));
+
+            }
+
+            return redisTemplate.opsForHash().get(key, item);
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hget", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hget", key, startNanos);
+
+        }
 
     }
 
@@ -272,7 +543,23 @@ public class RedisManager {
 
     public Map<Object, Object> hmget(String key) {
 
-        return redisTemplate.opsForHash().entries(key);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            return redisTemplate.opsForHash().entries(key);
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hmget", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hmget", key, startNanos);
+
+        }
 
     }
 
@@ -286,18 +573,28 @@ public class RedisManager {
 
     public boolean hmset(String key, Map<String, Object> map) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             redisTemplate.opsForHash().putAll(key, map);
 
+            invalidateNearCache(key);
+
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("hmset", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("hmset", key, startNanos);
+
         }
 
     }
@@ -313,24 +610,38 @@ public class RedisManager {
 
     public boolean hmset(String key, Map<String, Object> map, long time) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
-            redisTemplate.opsForHash().putAll(key, map);
+            byte[][] args = new byte[map.size() * 2 + 1][];
 
-            if (time > 0) {
+            int i = 1;
+
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+
+                args[i++] = rawHashKey(entry.getKey());
 
-                expire(key, time);
+                args[i++] = rawHashValue(entry.getValue());
 
             }
 
+            executeAndExpire(RedisLuaScripts.HMSET_AND_EXPIRE, key, time, args);
+
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("hmset", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("hmset", key, startNanos);
+
         }
 
     }
@@ -346,18 +657,28 @@ public class RedisManager {
 
     public boolean hset(String key, String item, Object value) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             redisTemplate.opsForHash().put(key, item, value);
 
+            invalidateNearCache(key);
+
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("hset", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("hset", key, startNanos);
+
         }
 
     }
@@ -374,24 +695,26 @@ public class RedisManager {
 
     public boolean hset(String key, String item, Object value, long time) {
 
-        try {
-
-            redisTemplate.opsForHash().put(key, item, value);
-
-            if (time > 0) {
+        long startNanos = System.nanoTime();
 
-                expire(key, time);
+        try {
 
-            }
+            executeAndExpire(RedisLuaScripts.HMSET_AND_EXPIRE, key, time, new byte[][]{null, rawHashKey(item), rawHashValue(value)});
 
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("hset", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("hset", key, startNanos);
+
         }
 
     }
@@ -405,7 +728,25 @@ public class RedisManager {
 
     public void hdel(String key, Object... item) {
 
-        redisTemplate.opsForHash().delete(key, item);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            redisTemplate.opsForHash().delete(key, item);
+
+            invalidateNearCache(key);
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hdel", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hdel", key, startNanos);
+
+        }
 
     }
 
@@ -419,7 +760,23 @@ public class RedisManager {
 
     public boolean hHasKey(String key, String item) {
 
-        return redisTemplate.opsForHash().hasKey(key, item);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            return redisTemplate.opsForHash().hasKey(key, item);
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hHasKey", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hHasKey", key, startNanos);
+
+        }
 
     }
 
@@ -434,7 +791,27 @@ public class RedisManager {
 
     public double hincr(String key, String item, double by) {
 
-        return redisTemplate.opsForHash().increment(key, item, by);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            double result = redisTemplate.opsForHash().increment(key, item, by);
+
+            invalidateNearCache(key);
+
+            return result;
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hincr", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hincr", key, startNanos);
+
+        }
 
     }
 
@@ -449,7 +826,27 @@ public class RedisManager {
 
     public double hdecr(String key, String item, double by) {
 
-        return redisTemplate.opsForHash().increment(key, item, -by);
+        long startNanos = System.nanoTime();
+
+        try {
+
+            double result = redisTemplate.opsForHash().increment(key, item, -by);
+
+            invalidateNearCache(key);
+
+            return result;
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hdecr", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hdecr", key, startNanos);
+
+        }
 
     }
 
@@ -464,16 +861,24 @@ public class RedisManager {
 
     public Set<Object> sGet(String key) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             return redisTemplate.opsForSet().members(key);
 
         } catch (Exception e) {
 
+            metrics.error("sGet", key);
+
             e.printStackTrace();
 
             return null;
 
+        } finally {
+
+            metrics.record("sGet", key, startNanos);
+
         }
 
     }
@@ -488,16 +893,24 @@ public class RedisManager {
 
     public boolean sHasKey(String key, Object value) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             return redisTemplate.opsForSet().isMember(key, value);
 
         } catch (Exception e) {
 
+            metrics.error("sHasKey", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("sHasKey", key, startNanos);
+
         }
 
     }
@@ -512,16 +925,28 @@ public class RedisManager {
 
     public long sSet(String key, Object... values) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
-            return redisTemplate.opsForSet().add(key, values);
+            Long count = redisTemplate.opsForSet().add(key, values);
+
+            markWritten(key);
+
+            return count;
 
         } catch (Exception e) {
 
+            metrics.error("sSet", key);
+
             e.printStackTrace();
 
             return 0;
 
+        } finally {
+
+            metrics.record("sSet", key, startNanos);
+
         }
 
     }
@@ -537,22 +962,24 @@ public class RedisManager {
 
     public long sSetAndTime(String key, long time, Object... values) {
 
-        try {
-
-            Long count = redisTemplate.opsForSet().add(key, values);
+        long startNanos = System.nanoTime();
 
-            if (time > 0) {
-                expire(key, time);
-            }
+        try {
 
-            return count;
+            return executeAndExpire(RedisLuaScripts.SADD_AND_EXPIRE, key, time, rawValues(values));
 
         } catch (Exception e) {
 
+            metrics.error("sSetAndTime", key);
+
             e.printStackTrace();
 
             return 0;
 
+        } finally {
+
+            metrics.record("sSetAndTime", key, startNanos);
+
         }
 
     }
@@ -566,16 +993,24 @@ public class RedisManager {
 
     public long sGetSetSize(String key) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             return redisTemplate.opsForSet().size(key);
 
         } catch (Exception e) {
 
+            metrics.error("sGetSetSize", key);
+
             e.printStackTrace();
 
             return 0;
 
+        } finally {
+
+            metrics.record("sGetSetSize", key, startNanos);
+
         }
 
     }
@@ -590,18 +1025,28 @@ public class RedisManager {
 
     public long setRemove(String key, Object... values) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             Long count = redisTemplate.opsForSet().remove(key, values);
 
+            markWritten(key);
+
             return count;
 
         } catch (Exception e) {
 
+            metrics.error("setRemove", key);
+
             e.printStackTrace();
 
             return 0;
 
+        } finally {
+
+            metrics.record("setRemove", key, startNanos);
+
         }
 
     }
@@ -619,16 +1064,24 @@ public class RedisManager {
 
     public List<Object> lGet(String key, long start, long end) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             return redisTemplate.opsForList().range(key, start, end);
 
         } catch (Exception e) {
 
+            metrics.error("lGet", key);
+
             e.printStackTrace();
 
             return null;
 
+        } finally {
+
+            metrics.record("lGet", key, startNanos);
+
         }
 
     }
@@ -642,16 +1095,24 @@ public class RedisManager {
 
     public long lGetListSize(String key) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             return redisTemplate.opsForList().size(key);
 
         } catch (Exception e) {
 
+            metrics.error("lGetListSize", key);
+
             e.printStackTrace();
 
             return 0;
 
+        } finally {
+
+            metrics.record("lGetListSize", key, startNanos);
+
         }
 
     }
@@ -666,16 +1127,24 @@ public class RedisManager {
 
     public Object lGetIndex(String key, long index) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             return redisTemplate.opsForList().index(key, index);
 
         } catch (Exception e) {
 
+            metrics.error("lGetIndex", key);
+
             e.printStackTrace();
 
             return null;
 
+        } finally {
+
+            metrics.record("lGetIndex", key, startNanos);
+
         }
 
     }
@@ -690,18 +1159,28 @@ public class RedisManager {
 
     public boolean lSet(String key, Object value) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             redisTemplate.opsForList().rightPush(key, value);
 
+            markWritten(key);
+
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("lSet", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("lSet", key, startNanos);
+
         }
 
     }
@@ -717,22 +1196,26 @@ public class RedisManager {
 
     public boolean lSet(String key, Object value, long time) {
 
-        try {
+        long startNanos = System.nanoTime();
 
-            redisTemplate.opsForList().rightPush(key, value);
+        try {
 
-            if (time > 0) {
-                expire(key, time);
-            }
+            executeAndExpire(RedisLuaScripts.RPUSH_AND_EXPIRE, key, time, new byte[][]{null, rawValue(value)});
 
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("lSet", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("lSet", key, startNanos);
+
         }
 
     }
@@ -747,18 +1230,28 @@ public class RedisManager {
 
     public boolean lSet(String key, List<Object> value) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             redisTemplate.opsForList().rightPushAll(key, value);
 
+            markWritten(key);
+
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("lSet", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("lSet", key, startNanos);
+
         }
 
     }
@@ -774,22 +1267,26 @@ public class RedisManager {
 
     public boolean lSet(String key, List<Object> value, long time) {
 
-        try {
+        long startNanos = System.nanoTime();
 
-            redisTemplate.opsForList().rightPushAll(key, value);
+        try {
 
-            if (time > 0) {
-                expire(key, time);
-            }
+            executeAndExpire(RedisLuaScripts.RPUSH_AND_EXPIRE, key, time, rawValues(value.toArray()));
 
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("lSet", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("lSet", key, startNanos);
+
         }
 
     }
@@ -805,18 +1302,28 @@ public class RedisManager {
 
     public boolean lUpdateIndex(String key, long index, Object value) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             redisTemplate.opsForList().set(key, index, value);
 
+            markWritten(key);
+
             return true;
 
         } catch (Exception e) {
 
+            metrics.error("lUpdateIndex", key);
+
             e.printStackTrace();
 
             return false;
 
+        } finally {
+
+            metrics.record("lUpdateIndex", key, startNanos);
+
         }
 
     }
@@ -832,18 +1339,1531 @@ public class RedisManager {
 
     public long lRemove(String key, long count, Object value) {
 
+        long startNanos = System.nanoTime();
+
         try {
 
             Long remove = redisTemplate.opsForList().remove(key, count, value);
 
+            markWritten(key);
+
             return remove;
 
         } catch (Exception e) {
 
+            metrics.error("lRemove", key);
+
             e.printStackTrace();
 
             return 0;
 
+        } finally {
+
+            metrics.record("lRemove", key, startNanos);
+
+        }
+
+    }
+
+    // ===============================loader=================================
+
+    /**
+     * 获取缓存，不存在时加载并放入缓存
+     * <p>
+     * 同一个key本节点只有一个线程加载，多个节点之间通过分布式锁合并加载；
+     * 临近过期时按加载耗时概率性提前刷新(XFetch)，刷新期间其他线程直接返回旧值
+     *
+     * @param key    键
+     * @param time   时间(秒) time要大于0 如果time小于等于0 将设置无限期
+     * @param loader 数据源加载
+     * @return 值
+     */
+
+    @SuppressWarnings("unchecked")
+
+    public <T> T getOrLoad(String key, long time, Supplier<T> loader) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            byte[] rawKey = rawKey(key);
+
+            List<Object> cached = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+
+                connection.stringCommands().get(rawKey);
+
+                connection.keyCommands().pTtl(rawKey);
+
+                return null;
+
+            }, RedisSerializer.byteArray());
+
+            Object value = RedisChunks.resolve(redisTemplate, key, (byte[]) cached.get(0));
+
+            if (value != null && !needEarlyRefresh(key, (Long) cached.get(1))) {
+
+                return (T) unwrapNull(value);
+
+            }
+
+            return (T) unwrapNull(singleFlightLoad(key, time, loader, value));
+
+        } catch (RuntimeException e) {
+
+            metrics.error("getOrLoad", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("getOrLoad", key, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 本节点内合并同一个key的加载
+     *
+     * @param stale 当前缓存值，不为null时表示提前刷新，拿不到加载权直接返回
+     */
+
+    private Object singleFlightLoad(String key, long time, Supplier<?> loader, Object stale) {
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+
+        CompletableFuture<Object> running = loadingFutures.putIfAbsent(key, future);
+
+        if (running != null) {
+
+            return stale != null ? stale : running.join();
+
+        }
+
+        try {
+
+            Object value = lockAndLoad(key, time, loader, stale);
+
+            future.complete(value);
+
+            return value;
+
+        } catch (RuntimeException e) {
+
+            future.completeExceptionally(e);
+
+            throw e;
+
+        } finally {
+
+            loadingFutures.remove(key, future);
+
+        }
+
+    }
+
+    /**
+     * 多个节点之间通过分布式锁合并同一个key的加载
+     */
+
+    private Object lockAndLoad(String key, long time, Supplier<?> loader, Object stale) {
+
+        MdxRedisProperties.Loader properties = redisProperties.getLoader();
+
+        String lockKey = LOAD_LOCK_PREFIX + key;
+
+        int waitMillis = stale != null ? 0 : properties.getLockWaitMillis();
+
+        if (!RedissonUtil.tryLock(lockKey, TimeUnit.MILLISECONDS, waitMillis, properties.getLockLeaseMillis())) {
+
+            if (stale != null) {
+
+                return stale;
+
+            }
+
+            // 等锁超时，其他节点可能已经加载完成，否则降级为直接加载
+
+            Object value = readValue(key);
+
+            return value != null ? value : loadAndSet(key, time, loader);
+
+        }
+
+        try {
+
+            if (stale == null) {
+
+                Object value = readValue(key);
+
+                if (value != null) {
+
+                    return value;
+
+                }
+
+            }
+
+            return loadAndSet(key, time, loader);
+
+        } finally {
+
+            try {
+
+                RedissonUtil.unLock(lockKey);
+
+            } catch (IllegalMonitorStateException e) {
+
+                log.warn("[{}]加载耗时超过锁释放时间，锁已自动释放", key);
+
+            }
+
+        }
+
+    }
+
+    private Object loadAndSet(String key, long time, Supplier<?> loader) {
+
+        long start = System.nanoTime();
+
+        Object value = loader.get();
+
+        loadCosts.put(key, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        if (value != null) {
+
+            set(key, value, time);
+
+            return value;
+
+        }
+
+        long nullTtl = redisProperties.getLoader().getNullTtlSeconds();
+
+        if (nullTtl > 0) {
+
+            set(key, NULL_VALUE, nullTtl);
+
+            return NULL_VALUE;
+
+        }
+
+        return null;
+
+    }
+
+    /**
+     * XFetch：剩余时间越短、加载越慢，越可能提前刷新
+     *
+     * @param key  键
+     * @param pttl 剩余时间(毫秒)
+     */
+
+    private boolean needEarlyRefresh(String key, Long pttl) {
+
+        double beta = redisProperties.getLoader().getBeta();
+
+        if (beta <= 0 || pttl == null || pttl <= 0) {
+
+            return false;
+
+        }
+
+        Long cost = loadCosts.getIfPresent(key);
+
+        if (cost == null) {
+
+            return false;
+
+        }
+
+        return -cost * beta * Math.log(ThreadLocalRandom.current().nextDouble()) >= pttl;
+
+    }
+
+    private static Object unwrapNull(Object value) {
+
+        return NULL_VALUE.equals(value) ? null : value;
+
+    }
+
+    // ===============================chunk=================================
+
+    /**
+     * 读取普通缓存，读到分片清单时拼接分片
+     */
+
+    private Object readValue(String key) {
+
+        return RedisChunks.get(redisTemplate, key);
+
+    }
+
+    /**
+     * 写入普通缓存，开启分片时序列化后达到阈值的value先写分片，再把原key原子替换为清单，
+     * 被覆盖的旧清单对应的分片延迟回收
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒) 小于等于0不设置过期时间
+     */
+
+    private void writeValue(String key, Object value, long time) {
+
+        MdxRedisProperties.Chunk properties = redisProperties.getChunk();
+
+        if (!properties.isEnabled()) {
+
+            if (time > 0) {
+
+                redisTemplate.opsForValue().set(key, value, time, TimeUnit.SECONDS);
+
+            } else {
+
+                redisTemplate.opsForValue().set(key, value);
+
+            }
+
+            return;
+
+        }
+
+        byte[] raw = rawValue(value);
+
+        if (raw.length >= properties.getThresholdBytes()) {
+
+            raw = writeChunks(key, raw, time, properties).encode();
+
+        }
+
+        byte[] old = redisTemplate.execute(RedisLuaScripts.SET_AND_GET_MANIFEST, RedisSerializer.byteArray(),
+                RedisSerializer.byteArray(), Collections.singletonList(key), RedisChunks.rawNumber(time), raw);
+
+        expireChunks(Collections.singletonMap(key, RedisChunks.manifestOf(old)), properties.getGraceSeconds());
+
+    }
+
+    /**
+     * 批量写入普通缓存，开启分片时使用，每个key都经过 SET_AND_GET_MANIFEST 替换，通过管道提交
+     *
+     * @param entries 键值
+     * @param time    时间(秒) 小于等于0不设置过期时间
+     */
+
+    private void writeValues(List<Map.Entry<String, Object>> entries, long time) {
+
+        MdxRedisProperties.Chunk properties = redisProperties.getChunk();
+
+        List<String> keys = new ArrayList<>(entries.size());
+
+        List<byte[]> raws = new ArrayList<>(entries.size());
+
+        for (Map.Entry<String, Object> entry : entries) {
+
+            byte[] raw = rawValue(entry.getValue());
+
+            if (raw.length >= properties.getThresholdBytes()) {
+
+                raw = writeChunks(entry.getKey(), raw, time, properties).encode();
+
+            }
+
+            keys.add(entry.getKey());
+
+            raws.add(raw);
+
+        }
+
+        List<byte[]> replies = evalPipelined(RedisLuaScripts.SET_AND_GET_MANIFEST, keys, time, raws);
+
+        Map<String, RedisChunkManifest> manifests = new LinkedHashMap<>();
+
+        for (int i = 0; i < keys.size(); i++) {
+
+            manifests.put(keys.get(i), RedisChunks.manifestOf(replies.get(i)));
+
+        }
+
+        expireChunks(manifests, properties.getGraceSeconds());
+
+    }
+
+    /**
+     * 通过管道写入新版本的分片
+     */
+
+    private RedisChunkManifest writeChunks(String key, byte[] raw, long time, MdxRedisProperties.Chunk properties) {
+
+        byte[][] chunks = RedisChunks.split(raw, properties.getChunkBytes());
+
+        RedisChunkManifest manifest = new RedisChunkManifest(Util.getUUID(), chunks.length, raw.length);
+
+        long chunkTime = RedisChunks.chunkTime(time, properties);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+
+            for (int i = 0; i < chunks.length; i++) {
+
+                byte[] chunkKey = rawKey(manifest.chunkKey(key, i));
+
+                if (chunkTime > 0) {
+
+                    connection.stringCommands().setEx(chunkKey, chunkTime, chunks[i]);
+
+                } else {
+
+                    connection.stringCommands().set(chunkKey, chunks[i]);
+
+                }
+
+            }
+
+            return null;
+
+        });
+
+        return manifest;
+
+    }
+
+    /**
+     * 通过 DEL_AND_GET_MANIFEST 或 EXPIRE_AND_GET_MANIFEST 批量删除或设置过期时间，
+     * 删除时分片延迟回收，设置过期时间时分片同步延长到 time + graceSeconds
+     *
+     * @param time 过期时间(秒)，删除时不使用
+     * @return 删除或设置成功的个数
+     */
+
+    private long evalManifestScript(RedisScript<byte[]> script, List<String> keys, long time) {
+
+        MdxRedisProperties.Chunk properties = redisProperties.getChunk();
+
+        List<byte[]> replies = evalPipelined(script, keys, time, null);
+
+        long count = 0;
+
+        Map<String, RedisChunkManifest> manifests = new LinkedHashMap<>();
+
+        for (int i = 0; i < keys.size(); i++) {
+
+            count += RedisChunks.countOf(replies.get(i));
+
+            manifests.put(keys.get(i), RedisChunks.manifestOf(replies.get(i)));
+
+        }
+
+        boolean expire = script == RedisLuaScripts.EXPIRE_AND_GET_MANIFEST;
+
+        expireChunks(manifests, expire ? RedisChunks.chunkTime(time, properties) : properties.getGraceSeconds());
+
+        return count;
+
+    }
+
+    /**
+     * 通过管道对每个key执行一次脚本，ARGV[1] 为 time，values 不为空时作为 ARGV[2]。
+     * 与 RedisTemplate 执行脚本一致先用EVALSHA，节点上没有缓存脚本(NOSCRIPT)时只对这些key改用EVAL重试，
+     * 已执行成功的key不会重复执行
+     *
+     * @return 每个key的脚本返回值
+     */
+
+    @SuppressWarnings("unchecked")
+
+    private List<byte[]> evalPipelined(RedisScript<byte[]> script, List<String> keys, long time, List<byte[]> values) {
+
+        List<Integer> indexes = new ArrayList<>(keys.size());
+
+        for (int i = 0; i < keys.size(); i++) {
+
+            indexes.add(i);
+
+        }
+
+        List<Object> replies;
+
+        try {
+
+            replies = pipelineScript(script, keys, time, values, indexes, true);
+
+        } catch (RedisPipelineException e) {
+
+            replies = new ArrayList<>(e.getPipelineResult());
+
+            List<Integer> retries = new ArrayList<>();
+
+            for (int i = 0; i < replies.size(); i++) {
+
+                if (replies.get(i) instanceof Throwable) {
+
+                    if (!RedisChunks.isNoScript((Throwable) replies.get(i))) {
+
+                        throw e;
+
+                    }
+
+                    retries.add(i);
+
+                }
+
+            }
+
+            List<Object> retried = pipelineScript(script, keys, time, values, retries, false);
+
+            for (int i = 0; i < retries.size(); i++) {
+
+                replies.set(retries.get(i), retried.get(i));
+
+            }
+
+        }
+
+        return (List<byte[]>) (List<?>) replies;
+
+    }
+
+    /**
+     * 通过管道对 indexes 中的key执行脚本
+     *
+     * @param sha 是否使用EVALSHA，否则EVAL脚本原文
+     */
+
+    private List<Object> pipelineScript(RedisScript<byte[]> script, List<String> keys, long time, List<byte[]> values,
+                                        List<Integer> indexes, boolean sha) {
+
+        byte[] rawScript = sha ? null : RedisChunks.script(script);
+
+        byte[] rawTime = RedisChunks.rawNumber(time);
+
+        return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+
+            for (int i : indexes) {
+
+                byte[][] args = values == null
+                        ? new byte[][]{rawKey(keys.get(i)), rawTime}
+                        : new byte[][]{rawKey(keys.get(i)), rawTime, values.get(i)};
+
+                if (sha) {
+
+                    connection.scriptingCommands().evalSha(script.getSha1(), ReturnType.VALUE, 1, args);
+
+                } else {
+
+                    connection.scriptingCommands().eval(rawScript, ReturnType.VALUE, 1, args);
+
+                }
+
+            }
+
+            return null;
+
+        }, RedisSerializer.byteArray());
+
+    }
+
+    /**
+     * 设置分片过期时间，seconds 小于等于0时直接UNLINK。回收旧版本时传 graceSeconds，
+     * 期间正在读取旧清单的请求仍能读完
+     *
+     * @param manifests key 与其分片清单，清单为null的跳过
+     */
+
+    private void expireChunks(Map<String, RedisChunkManifest> manifests, long seconds) {
+
+        if (manifests.values().stream().allMatch(manifest -> manifest == null)) {
+
+            return;
+
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+
+            for (Map.Entry<String, RedisChunkManifest> entry : manifests.entrySet()) {
+
+                RedisChunkManifest manifest = entry.getValue();
+
+                for (int i = 0; manifest != null && i < manifest.getChunkCount(); i++) {
+
+                    byte[] chunkKey = rawKey(manifest.chunkKey(entry.getKey(), i));
+
+                    if (seconds > 0) {
+
+                        connection.keyCommands().expire(chunkKey, seconds);
+
+                    } else {
+
+                        connection.keyCommands().unlink(chunkKey);
+
+                    }
+
+                }
+
+            }
+
+            return null;
+
+        });
+
+    }
+
+    // ===============================script=================================
+
+    /**
+     * 执行写入并设置过期时间的脚本，写入和过期在一次往返内原子完成
+     *
+     * @param script 脚本
+     * @param key    键
+     * @param time   时间(秒) 小于等于0不设置过期时间
+     * @param args   脚本参数，下标0预留给过期时间
+     * @return 脚本返回值
+     */
+
+    private long executeAndExpire(RedisScript<Long> script, String key, long time, byte[][] args) {
+
+        args[0] = String.valueOf(time).getBytes(StandardCharsets.UTF_8);
+
+        Long result = redisTemplate.execute(script, RedisSerializer.byteArray(), null,
+                Collections.singletonList(key), (Object[]) args);
+
+        invalidateNearCache(key);
+
+        return result == null ? 0 : result;
+
+    }
+
+    @SuppressWarnings("unchecked")
+
+    private byte[] rawKey(String key) {
+
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+
+    }
+
+    @SuppressWarnings("unchecked")
+
+    private String deserializeKey(byte[] rawKey) {
+
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).deserialize(rawKey);
+
+    }
+
+    @SuppressWarnings("unchecked")
+
+    private byte[] rawValue(Object value) {
+
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+
+    }
+
+    /**
+     * 序列化多个值，下标0预留给过期时间
+     */
+
+    private byte[][] rawValues(Object[] values) {
+
+        byte[][] args = new byte[values.length + 1][];
+
+        for (int i = 0; i < values.length; i++) {
+
+            args[i + 1] = rawValue(values[i]);
+
+        }
+
+        return args;
+
+    }
+
+    @SuppressWarnings("unchecked")
+
+    private byte[] rawHashKey(Object hashKey) {
+
+        return ((RedisSerializer<Object>) redisTemplate.getHashKeySerializer()).serialize(hashKey);
+
+    }
+
+    @SuppressWarnings("unchecked")
+
+    private byte[] rawHashValue(Object value) {
+
+        return ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+
+    }
+
+    // ===============================batch=================================
+
+    /**
+     * 批量获取普通缓存，按批次大小拆分为多次MGET
+     *
+     * @param keys 键
+     * @return 值 与keys顺序一致，未命中的位置为null
+     */
+
+    public List<Object> mget(Collection<String> keys) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            List<Object> result = new ArrayList<>(keys.size());
+
+            for (List<String> chunk : partition(keys)) {
+
+                result.addAll(RedisChunks.multiGet(redisTemplate, chunk));
+
+            }
+
+            return result;
+
+        } catch (RuntimeException e) {
+
+            metrics.error("mget", null);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("mget", null, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 批量放入普通缓存，带过期时间时通过管道提交SET EX
+     *
+     * @param map  键值
+     * @param time 时间(秒) time要大于0 如果time小于等于0 将设置无限期
+     * @return true成功 false失败
+     */
+
+    @SuppressWarnings("unchecked")
+
+    public boolean mset(Map<String, Object> map, long time) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            for (List<Map.Entry<String, Object>> chunk : partition(map.entrySet())) {
+
+                if (redisProperties.getChunk().isEnabled()) {
+
+                    writeValues(chunk, time);
+
+                } else if (time > 0) {
+
+                    redisTemplate.executePipelined(new SessionCallback<Object>() {
+
+                        @Override
+                        public <K, V> Object execute(RedisOperations<K, V> operations) {
+
+                            ValueOperations<String, Object> ops = ((RedisOperations<String, Object>) operations).opsForValue();
+
+                            for (Map.Entry<String, Object> entry : chunk) {
+
+                                ops.set(entry.getKey(), entry.getValue(), time, TimeUnit.SECONDS);
+
+                            }
+
+                            return null;
+
+                        }
+
+                    });
+
+                } else {
+
+                    Map<String, Object> values = new LinkedHashMap<>(chunk.size() * 2);
+
+                    for (Map.Entry<String, Object> entry : chunk) {
+
+                        values.put(entry.getKey(), entry.getValue());
+
+                    }
+
+                    redisTemplate.opsForValue().multiSet(values);
+
+                }
+
+                for (Map.Entry<String, Object> entry : chunk) {
+
+                    invalidateNearCache(entry.getKey());
+
+                }
+
+            }
+
+            return true;
+
+        } catch (Exception e) {
+
+            metrics.error("mset", null);
+
+            e.printStackTrace();
+
+            return false;
+
+        } finally {
+
+            metrics.record("mset", null, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 批量获取多个hash表中的多个项，通过管道提交HMGET
+     *
+     * @param keyItems 键 对应需要获取的项
+     * @return 键 对应项的值，键的顺序与入参一致，值与项的顺序一致，未命中的位置为null，项为null或空时为空列表
+     */
+
+    @SuppressWarnings("unchecked")
+
+    public Map<String, List<Object>> hgetMulti(Map<String, ? extends Collection<String>> keyItems) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            Map<String, List<Object>> result = new LinkedHashMap<>(keyItems.size() * 2);
+
+            for (List<String> chunk : partition(keyItems.keySet())) {
+
+                // 项为空时 multiGet 不会提交HMGET，只对实际提交的key按下标取回复
+
+                List<String> sent = new ArrayList<>(chunk.size());
+
+                for (String key : chunk) {
+
+                    Collection<String> items = keyItems.get(key);
+
+                    if (items == null || items.isEmpty()) {
+
+                        result.put(key, new ArrayList<>());
+
+                    } else {
+
+                        sent.add(key);
+
+                        result.put(key, null);
+
+                    }
+
+                }
+
+                if (sent.isEmpty()) {
+
+                    continue;
+
+                }
+
+                List<Object> values = redisTemplate.executePipelined(new SessionCallback<Object>() {
+
+                    @Override
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+
+                        RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+
+                        for (String key : sent) {
+
+                            ops.opsForHash().multiGet(key, new ArrayList<>(keyItems.get(key)));
+
+                        }
+
+                        return null;
+
+                    }
+
+                });
+
+                for (int i = 0; i < sent.size(); i++) {
+
+                    result.put(sent.get(i), (List<Object>) values.get(i));
+
+                }
+
+            }
+
+            return result;
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hgetMulti", null);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hgetMulti", null, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 批量删除缓存，按批次大小拆分为多次DEL
+     *
+     * @param keys 键
+     * @return 删除的个数
+     */
+
+    public long delBatch(Collection<String> keys) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            long count = 0;
+
+            for (List<String> chunk : partition(keys)) {
+
+                if (redisProperties.getChunk().isEnabled()) {
+
+                    count += evalManifestScript(RedisLuaScripts.DEL_AND_GET_MANIFEST, chunk, 0);
+
+                } else {
+
+                    Long deleted = redisTemplate.delete(chunk);
+
+                    count += deleted == null ? 0 : deleted;
+
+                }
+
+                for (String key : chunk) {
+
+                    invalidateNearCache(key);
+
+                }
+
+            }
+
+            return count;
+
+        } catch (RuntimeException e) {
+
+            metrics.error("delBatch", null);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("delBatch", null, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 按批次大小拆分
+     *
+     * @param items 待拆分集合
+     * @return 拆分后的批次
+     */
+
+    private <T> List<List<T>> partition(Collection<T> items) {
+
+        int batchSize = Math.max(1, redisProperties.getBatchSize());
+
+        List<List<T>> chunks = new ArrayList<>((items.size() + batchSize - 1) / batchSize);
+
+        List<T> chunk = new ArrayList<>(Math.min(batchSize, items.size()));
+
+        for (T item : items) {
+
+            chunk.add(item);
+
+            if (chunk.size() == batchSize) {
+
+                chunks.add(chunk);
+
+                chunk = new ArrayList<>(batchSize);
+
+            }
+
+        }
+
+        if (!chunk.isEmpty()) {
+
+            chunks.add(chunk);
+
+        }
+
+        return chunks;
+
+    }
+
+    // ===============================scan=================================
+
+    /**
+     * 按通配符遍历key，基于SCAN游标分批拉取，不会像KEYS一样阻塞redis。
+     * 返回的游标占用一个redis连接，使用完必须关闭，建议 try-with-resources
+     *
+     * @param pattern   通配符 如 user:* ，null表示全部
+     * @param batchSize 单次SCAN的COUNT提示，小于等于0时使用配置值
+     * @return key游标
+     */
+
+    public Cursor<String> scan(String pattern, int batchSize) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            ScanOptions options = scanOptions(pattern, batchSize);
+
+            return redisTemplate.executeWithStickyConnection(
+                    connection -> new ConvertingCursor<>(connection.scan(options), this::deserializeKey));
+
+        } catch (RuntimeException e) {
+
+            metrics.error("scan", pattern);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("scan", pattern, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 按通配符删除key，SCAN分批后用UNLINK在后台释放内存，按配置限速
+     *
+     * @param pattern 通配符 如 user:*
+     * @return 删除的个数
+     */
+
+    public long delByPattern(String pattern) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            return scanInBatches(pattern, keys -> {
+
+                long deleted;
+
+                if (redisProperties.getChunk().isEnabled()) {
+
+                    deleted = evalManifestScript(RedisLuaScripts.DEL_AND_GET_MANIFEST, keys, 0);
+
+                } else {
+
+                    Long unlinked = redisTemplate.unlink(keys);
+
+                    deleted = unlinked == null ? 0 : unlinked;
+
+                }
+
+                for (String key : keys) {
+
+                    invalidateNearCache(key);
+
+                }
+
+                return deleted;
+
+            });
+
+        } catch (RuntimeException e) {
+
+            metrics.error("delByPattern", pattern);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("delByPattern", pattern, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 按通配符设置过期时间，SCAN分批后通过管道提交EXPIRE，按配置限速
+     *
+     * @param pattern 通配符 如 user:*
+     * @param time    时间(秒) 小于等于0时不处理
+     * @return 设置成功的个数
+     */
+
+    public long expireByPattern(String pattern, long time) {
+
+        if (time <= 0) {
+
+            return 0;
+
+        }
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            return scanInBatches(pattern, keys -> {
+
+                long count = 0;
+
+                if (redisProperties.getChunk().isEnabled()) {
+
+                    count = evalManifestScript(RedisLuaScripts.EXPIRE_AND_GET_MANIFEST, keys, time);
+
+                } else {
+
+                    List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+
+                        for (String key : keys) {
+
+                            connection.expire(rawKey(key), time);
+
+                        }
+
+                        return null;
+
+                    });
+
+                    for (Object result : results) {
+
+                        if (Boolean.TRUE.equals(result)) {
+
+                            count++;
+
+                        }
+
+                    }
+
+                }
+
+                for (String key : keys) {
+
+                    invalidateNearCache(key);
+
+                }
+
+                return count;
+
+            });
+
+        } catch (RuntimeException e) {
+
+            metrics.error("expireByPattern", pattern);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("expireByPattern", pattern, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 遍历hash表，大hash代替 hmget 一次性拉取。
+     * 返回的游标占用一个redis连接，使用完必须关闭
+     *
+     * @param key     键
+     * @param pattern 项的通配符，null表示全部
+     * @param count   单次HSCAN的COUNT提示，小于等于0时使用配置值
+     * @return 项和值的游标
+     */
+
+    public Cursor<Map.Entry<Object, Object>> hscan(String key, String pattern, int count) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            return redisTemplate.opsForHash().scan(key, scanOptions(pattern, count));
+
+        } catch (RuntimeException e) {
+
+            metrics.error("hscan", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("hscan", key, startNanos);
+
+        }
+
+    }
+
+    /**
+     * 遍历set，大set代替 sGet 一次性拉取。
+     * 返回的游标占用一个redis连接，使用完必须关闭
+     *
+     * @param key     键
+     * @param pattern 值的通配符，null表示全部
+     * @param count   单次SSCAN的COUNT提示，小于等于0时使用配置值
+     * @return 值的游标
+     */
+
+    public Cursor<Object> sscan(String key, String pattern, int count) {
+
+        long startNanos = System.nanoTime();
+
+        try {
+
+            return redisTemplate.opsForSet().scan(key, scanOptions(pattern, count));
+
+        } catch (RuntimeException e) {
+
+            metrics.error("sscan", key);
+
+            throw e;
+
+        } finally {
+
+            metrics.record("sscan", key, startNanos);
+
+        }
+
+    }
+
+    private ScanOptions scanOptions(String pattern, int count) {
+
+        ScanOptions.ScanOptionsBuilder builder = ScanOptions.scanOptions()
+                .count(count > 0 ? count : redisProperties.getScan().getCount());
+
+        if (pattern != null) {
+
+            builder.match(pattern);
+
+        }
+
+        return builder.build();
+
+    }
+
+    /**
+     * SCAN遍历key，凑满批次大小后交给action处理，每批处理完按限速等待
+     *
+     * @param pattern 通配符
+     * @param action  批处理，返回生效的个数
+     * @return 生效的总个数
+     */
+
+    private long scanInBatches(String pattern, ToLongFunction<List<String>> action) {
+
+        int batchSize = Math.max(1, redisProperties.getBatchSize());
+
+        long keysPerSecond = redisProperties.getScan().getMaxKeysPerSecond();
+
+        long begin = System.nanoTime();
+
+        long processed = 0;
+
+        long affected = 0;
+
+        List<String> batch = new ArrayList<>(batchSize);
+
+        try (Cursor<String> cursor = scan(pattern, 0)) {
+
+            while (cursor.hasNext()) {
+
+                batch.add(cursor.next());
+
+                if (batch.size() == batchSize) {
+
+                    affected += action.applyAsLong(batch);
+
+                    processed += batch.size();
+
+                    batch = new ArrayList<>(batchSize);
+
+                    if (!throttle(begin, processed, keysPerSecond)) {
+
+                        return affected;
+
+                    }
+
+                }
+
+            }
+
+        }
+
+        if (!batch.isEmpty()) {
+
+            affected += action.applyAsLong(batch);
+
+        }
+
+        return affected;
+
+    }
+
+    /**
+     * 按已处理数量计算应耗时间，处理过快时等待
+     *
+     * @return 线程被中断时返回false
+     */
+
+    private boolean throttle(long begin, long processed, long keysPerSecond) {
+
+        if (keysPerSecond <= 0) {
+
+            return true;
+
+        }
+
+        long waitNanos = processed * 1000000000L / keysPerSecond - (System.nanoTime() - begin);
+
+        if (waitNanos > 0) {
+
+            try {
+
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+
+                log.warn("按通配符批量处理被中断，已处理{}个", processed);
+
+                return false;
+
+            }
+
+        }
+
+        return true;
+
+    }
+
+    // ===============================read replica=================================
+
+    /**
+     * 只读视图，按 mdx.redis.read 的前缀配置读取主节点或从节点，未开启时全部读主节点
+     *
+     * @return 只读视图
+     */
+
+    public RedisReadView readOnly() {
+
+        RedisReadView view = readOnlyView;
+
+        if (view == null) {
+
+            view = readOnly(null);
+
+            readOnlyView = view;
+
+        }
+
+        return view;
+
+    }
+
+    /**
+     * 指定读取路由的只读视图，忽略前缀配置，本节点刚写入的key仍读主节点
+     *
+     * @param route 读取路由，null时按前缀配置
+     * @return 只读视图
+     */
+
+    public RedisReadView readOnly(MdxRedisProperties.ReadRoute route) {
+
+        if (readRouter == null) {
+
+            return new RedisReadView(key -> redisTemplate, metrics);
+
+        }
+
+        return new RedisReadView(key -> readRouter.route(key, route), metrics);
+
+    }
+
+    /**
+     * 记录本节点写入的key，读己之写窗口内只读视图读取该key走主节点
+     *
+     * @param key 键
+     */
+
+    private void markWritten(String key) {
+
+        if (readRouter != null) {
+
+            readRouter.written(key);
+
+        }
+
+    }
+
+    // ===============================async=================================
+
+    /**
+     * 异步视图，基于lettuce异步命令，返回 CompletableFuture，用于并行发出多个互不依赖的操作
+     *
+     * @return 异步视图
+     */
+
+    public RedisAsyncView async() {
+
+        RedisAsyncView view = asyncView;
+
+        if (view == null) {
+
+            synchronized (this) {
+
+                if (asyncView == null) {
+
+                    asyncView = createAsyncView(false);
+
+                }
+
+                view = asyncView;
+
+            }
+
+        }
+
+        return view;
+
+    }
+
+    /**
+     * 合并刷新的异步视图，同一时刻从各线程发出的命令攒在一起一次写出，相当于自动管道。
+     * 适合高并发的小命令扇出，低并发时每个命令多一次线程切换的延迟
+     *
+     * @return 异步视图
+     */
+
+    public RedisAsyncView asyncPipelined() {
+
+        RedisAsyncView view = pipelinedView;
+
+        if (view == null) {
+
+            synchronized (this) {
+
+                if (pipelinedView == null) {
+
+                    flushExecutor = Executors.newSingleThreadExecutor(r -> {
+
+                        Thread thread = new Thread(r, "mdx-redis-flusher");
+
+                        thread.setDaemon(true);
+
+                        return thread;
+
+                    });
+
+                    pipelinedView = createAsyncView(true);
+
+                }
+
+                view = pipelinedView;
+
+            }
+
+        }
+
+        return view;
+
+    }
+
+    /**
+     * 异步视图使用独立的lettuce连接，不占用 redisTemplate 的共享连接
+     *
+     * @param pipelined 是否合并刷新
+     * @return 异步视图
+     */
+
+    private RedisAsyncView createAsyncView(boolean pipelined) {
+
+        RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
+
+        if (!(factory instanceof LettuceConnectionFactory)) {
+
+            throw new IllegalStateException("redis异步操作需要使用lettuce连接");
+
+        }
+
+        AbstractRedisClient client = ((LettuceConnectionFactory) factory).getRequiredNativeClient();
+
+        if (client instanceof RedisClusterClient) {
+
+            StatefulRedisClusterConnection<byte[], byte[]> connection = ((RedisClusterClient) client).connect(ByteArrayCodec.INSTANCE);
+
+            return new RedisAsyncView(connection, connection.async(), redisTemplate, nearCache, readRouter, metrics,
+                    redisProperties.getChunk(), pipelined ? flushExecutor : null);
+
+        }
+
+        StatefulRedisConnection<byte[], byte[]> connection = ((RedisClient) client).connect(ByteArrayCodec.INSTANCE);
+
+        return new RedisAsyncView(connection, connection.async(), redisTemplate, nearCache, readRouter, metrics,
+                redisProperties.getChunk(), pipelined ? flushExecutor : null);
+
+    }
+
+    @Override
+    public synchronized void destroy() {
+
+        if (asyncView != null) {
+
+            asyncView.close();
+
+        }
+
+        if (pipelinedView != null) {
+
+            pipelinedView.close();
+
+        }
+
+        if (flushExecutor != null) {
+
+            flushExecutor.shutdown();
+
+        }
+
+    }
+
+    // ===============================near cache=================================
+
+    /**
+     * key被修改后清理本地近端缓存并通知其他节点，同时记录写入
+     *
+     * @param key 键
+     */
+
+    private void invalidateNearCache(String key) {
+
+        markWritten(key);
+
+        if (nearCache != null) {
+
+            nearCache.invalidate(key);
+
+        }
+
+    }
+
+    /**
+     * 普通缓存写入后通知其他节点，并回填本地近端缓存，同时记录写入
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒)
+     */
+
+    private void refreshNearCache(String key, Object value, long time) {
+
+        markWritten(key);
+
+        if (nearCache != null) {
+
+            nearCache.invalidate(key);
+
+            nearCache.put(key, value, time);
+
         }
 
     }
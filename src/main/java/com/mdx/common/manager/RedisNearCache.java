@@ -0,0 +1,292 @@
+package com.mdx.common.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mdx.common.config.MdxRedisProperties;
+import com.mdx.common.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * redis 本地近端缓存(L1)
+ * <p>
+ * 按key前缀开启，容量和淘汰由Caffeine(W-TinyLFU)负责；
+ * key被修改时先清理本地，再通过redis发布订阅通知其他节点清理。
+ * key在redis中自然过期不会触发通知，本地最长存活时间即可接受的最大脏读时间。
+ * 本地保存序列化后的内容，每次命中反序列化出新对象，调用方修改返回值不影响其他调用方。
+ * 每次清理或写入递增key所在分段的版本号，读取redis前后版本号不一致时不回填，避免并发清理前读到的旧值被放回本地
+ */
+public class RedisNearCache implements MessageListener {
+    private static final Logger log = LoggerFactory.getLogger(RedisNearCache.class);
+
+    /**
+     * 广播消息中节点标识和key的分隔符
+     */
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 版本号分段数，必须为2的幂
+     */
+    private static final int GENERATION_STRIPES = 1024;
+
+    /**
+     * 当前节点标识，用于忽略自己发出的失效消息
+     */
+    private final String nodeId = Util.getUUID();
+
+    private final String[] prefixes;
+
+    private final long maxTtlNanos;
+
+    private final byte[] channel;
+
+    private final Cache<String, Entry> cache;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public RedisNearCache(RedisTemplate<String, Object> redisTemplate, MdxRedisProperties.NearCache properties) {
+        this.redisTemplate = redisTemplate;
+        this.prefixes = properties.getPrefixes().toArray(new String[0]);
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(properties.getTtlSeconds());
+        this.channel = properties.getChannel().getBytes(StandardCharsets.UTF_8);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .expireAfter(new EntryExpiry())
+                .build();
+    }
+
+    /**
+     * 判断key是否走本地缓存
+     *
+     * @param key 键
+     * @return true 需要缓存
+     */
+    public boolean isCacheable(String key) {
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 普通缓存获取，本地未命中时通过loader读取redis并回填
+     *
+     * @param key    键
+     * @param loader redis读取
+     * @return 值
+     */
+    public Object get(String key, Supplier<Object> loader) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.value != null) {
+            return valueSerializer().deserialize(entry.value);
+        }
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        Object value = loader.get();
+        if (value != null) {
+            byte[] raw = valueSerializer().serialize(value);
+            cache.asMap().compute(key, (k, exist) ->
+                    generations.get(stripe) == generation ? new Entry(raw, null, maxTtlNanos) : exist);
+        }
+        return value;
+    }
+
+    /**
+     * hash缓存获取，本地未命中时通过loader读取redis并回填
+     *
+     * @param key    键
+     * @param item   项
+     * @param loader redis读取
+     * @return 值
+     */
+    public Object hget(String key, String item, Supplier<Object> loader) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.fields != null) {
+            byte[] raw = entry.fields.get(item);
+            if (raw != null) {
+                return hashValueSerializer().deserialize(raw);
+            }
+        }
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        Object value = loader.get();
+        if (value != null) {
+            byte[] raw = hashValueSerializer().serialize(value);
+            cache.asMap().compute(key, (k, exist) -> {
+                if (generations.get(stripe) != generation) {
+                    return exist;
+                }
+                Entry target = exist != null && exist.fields != null
+                        ? exist : new Entry(null, new ConcurrentHashMap<>(), maxTtlNanos);
+                target.fields.put(item, raw);
+                return target;
+            });
+        }
+        return value;
+    }
+
+    /**
+     * 写入成功后回填本地缓存，存活时间取redis过期时间和本地最长存活时间的较小值
+     *
+     * @param key   键
+     * @param value 值
+     * @param time  时间(秒) 小于等于0表示redis中永久有效
+     */
+    public void put(String key, Object value, long time) {
+        if (value == null || !isCacheable(key)) {
+            return;
+        }
+        long ttlNanos = time > 0 ? Math.min(TimeUnit.SECONDS.toNanos(time), maxTtlNanos) : maxTtlNanos;
+        byte[] raw = valueSerializer().serialize(value);
+        int stripe = stripe(key);
+        cache.asMap().compute(key, (k, exist) -> {
+            generations.incrementAndGet(stripe);
+            return new Entry(raw, null, ttlNanos);
+        });
+    }
+
+    /**
+     * key发生变更，清理本地并广播其他节点
+     *
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        byte[] message = invalidateLocal(key);
+        if (message == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(connection -> connection.publish(channel, message), true);
+        } catch (Exception e) {
+            log.error("近端缓存失效广播异常，key：{}", key, e);
+        }
+    }
+
+    /**
+     * key发生变更，只清理本地，返回需要广播到 {@link #getChannel()} 的消息，由调用方自行发布
+     *
+     * @param key 键
+     * @return 广播消息，不走本地缓存的key返回null
+     */
+    public byte[] invalidateLocal(String key) {
+        if (!isCacheable(key)) {
+            return null;
+        }
+        evict(key);
+        return (nodeId + SEPARATOR + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 失效广播频道，调用方不可修改
+     */
+    public byte[] getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index < 0 || (index == nodeId.length() && body.startsWith(nodeId))) {
+            return;
+        }
+        evict(body.substring(index + 1));
+    }
+
+    /**
+     * 清理本地并递增版本号，与回填在同一个key的锁内完成
+     */
+    private void evict(String key) {
+        int stripe = stripe(key);
+        cache.asMap().compute(key, (k, exist) -> {
+            generations.incrementAndGet(stripe);
+            return null;
+        });
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> hashValueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+    }
+
+    /**
+     * 命中/未命中/淘汰统计
+     *
+     * @return 统计信息
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 本地缓存条数(估算)
+     *
+     * @return 条数
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 本地缓存条目，普通值使用value，hash使用fields，均为序列化后的内容
+     */
+    private static final class Entry {
+        private final byte[] value;
+        private final ConcurrentMap<String, byte[]> fields;
+        /**
+         * 过期时刻(System.nanoTime)，回填hash项时复用条目不延长存活时间
+         */
+        private final long expireAtNanos;
+
+        private Entry(byte[] value, ConcurrentMap<String, byte[]> fields, long ttlNanos) {
+            this.value = value;
+            this.fields = fields;
+            this.expireAtNanos = System.nanoTime() + ttlNanos;
+        }
+    }
+
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return Math.max(0, entry.expireAtNanos - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return Math.max(0, entry.expireAtNanos - currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.mdx.common.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mdx.common.config.MdxRedisProperties;
+import io.lettuce.core.ReadFrom;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis 读取路由
+ * <p>
+ * 在主连接之外按 lettuce ReadFrom 建立优先读从节点和只读从节点两套连接，按key前缀选择读取用的 RedisTemplate。
+ * 本节点刚写入过的key在 readYourWritesMillis 内仍读主节点
+ */
+public class RedisReadRouter implements DisposableBean {
+
+    private final RedisTemplate<String, Object> primary;
+
+    private final LettuceConnectionFactory replicaPreferredFactory;
+
+    private final LettuceConnectionFactory replicaFactory;
+
+    private final RedisTemplate<String, Object> replicaPreferred;
+
+    private final RedisTemplate<String, Object> replica;
+
+    private final String[] prefixes;
+
+    private final MdxRedisProperties.ReadRoute[] routes;
+
+    private final MdxRedisProperties.ReadRoute defaultRoute;
+
+    /**
+     * 最近写入的key，未开启读己之写时为null
+     */
+    private final Cache<String, Boolean> recentWrites;
+
+    /**
+     * @param primary    主节点 RedisTemplate，从节点连接沿用其序列化方式
+     * @param factory    主节点连接，从节点连接沿用其地址、账号和客户端配置
+     * @param properties 读取配置
+     */
+    public RedisReadRouter(RedisTemplate<String, Object> primary, LettuceConnectionFactory factory,
+                           MdxRedisProperties.Read properties) {
+        this.primary = primary;
+        this.replicaPreferredFactory = replicaFactory(factory, ReadFrom.REPLICA_PREFERRED);
+        this.replicaFactory = replicaFactory(factory, ReadFrom.REPLICA);
+        this.replicaPreferred = template(primary, replicaPreferredFactory);
+        this.replica = template(primary, replicaFactory);
+        this.prefixes = new String[properties.getRoutes().size()];
+        this.routes = new MdxRedisProperties.ReadRoute[prefixes.length];
+        int i = 0;
+        for (Map.Entry<String, MdxRedisProperties.ReadRoute> entry : properties.getRoutes().entrySet()) {
+            prefixes[i] = entry.getKey();
+            routes[i++] = entry.getValue();
+        }
+        this.defaultRoute = properties.getDefaultRoute();
+        if (properties.getReadYourWritesMillis() > 0) {
+            this.recentWrites = Caffeine.newBuilder()
+                    .maximumSize(properties.getRecentWritesMaximumSize())
+                    .expireAfterWrite(properties.getReadYourWritesMillis(), TimeUnit.MILLISECONDS)
+                    .build();
+        } else {
+            this.recentWrites = null;
+        }
+    }
+
+    /**
+     * 选择读取key使用的 RedisTemplate
+     *
+     * @param key   键
+     * @param route 指定路由，null时按前缀配置
+     * @return RedisTemplate
+     */
+    public RedisTemplate<String, Object> route(String key, MdxRedisProperties.ReadRoute route) {
+        if (route == null) {
+            route = routeOf(key);
+        }
+        if (route == MdxRedisProperties.ReadRoute.PRIMARY
+                || (recentWrites != null && recentWrites.getIfPresent(key) != null)) {
+            return primary;
+        }
+        return route == MdxRedisProperties.ReadRoute.REPLICA ? replica : replicaPreferred;
+    }
+
+    /**
+     * 记录本节点写入的key
+     *
+     * @param key 键
+     */
+    public void written(String key) {
+        if (recentWrites != null && key != null) {
+            recentWrites.put(key, Boolean.TRUE);
+        }
+    }
+
+    private MdxRedisProperties.ReadRoute routeOf(String key) {
+        for (int i = 0; i < prefixes.length; i++) {
+            if (key.startsWith(prefixes[i])) {
+                return routes[i];
+            }
+        }
+        return defaultRoute;
+    }
+
+    private static LettuceConnectionFactory replicaFactory(LettuceConnectionFactory factory, ReadFrom readFrom) {
+        LettuceClientConfiguration client = factory.getClientConfiguration();
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder = LettuceClientConfiguration.builder();
+        if (client.isUseSsl()) {
+            LettuceClientConfiguration.LettuceSslClientConfigurationBuilder ssl = builder.useSsl();
+            if (!client.isVerifyPeer()) {
+                ssl.disablePeerVerification();
+            }
+            if (client.isStartTls()) {
+                ssl.startTls();
+            }
+            builder = ssl.and();
+        }
+        client.getClientResources().ifPresent(builder::clientResources);
+        client.getClientOptions().ifPresent(builder::clientOptions);
+        client.getClientName().ifPresent(builder::clientName);
+        builder.readFrom(readFrom)
+                .commandTimeout(client.getCommandTimeout())
+                .shutdownTimeout(client.getShutdownTimeout())
+                .shutdownQuietPeriod(client.getShutdownQuietPeriod());
+        RedisConfiguration configuration;
+        if (factory.getClusterConfiguration() != null) {
+            configuration = factory.getClusterConfiguration();
+        } else if (factory.getSentinelConfiguration() != null) {
+            configuration = factory.getSentinelConfiguration();
+        } else {
+            configuration = factory.getStandaloneConfiguration();
+        }
+        LettuceConnectionFactory replicaFactory = new LettuceConnectionFactory(configuration, builder.build());
+        replicaFactory.afterPropertiesSet();
+        return replicaFactory;
+    }
+
+    private static RedisTemplate<String, Object> template(RedisTemplate<String, Object> primary, LettuceConnectionFactory factory) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+        template.setKeySerializer(primary.getKeySerializer());
+        template.setHashKeySerializer(primary.getHashKeySerializer());
+        template.setValueSerializer(primary.getValueSerializer());
+        template.setHashValueSerializer(primary.getHashValueSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    @Override
+    public void destroy() {
+        replicaPreferredFactory.destroy();
+        replicaFactory.destroy();
+    }
+}
@@ -0,0 +1,144 @@
+package com.mdx.common.manager;
+
+import com.mdx.common.metrics.RedisMetrics;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * redis 只读视图，通过 {@link RedisManager#readOnly()} 获取
+ * <p>
+ * 读取按 mdx.redis.read 的前缀配置路由到主节点或从节点，读从节点时可能读到复制延迟内的旧数据。
+ * 不经过本地近端缓存，避免从节点的旧数据回填到本地
+ */
+public class RedisReadView {
+
+    private final Function<String, RedisTemplate<String, Object>> router;
+
+    private final RedisMetrics metrics;
+
+    RedisReadView(Function<String, RedisTemplate<String, Object>> router, RedisMetrics metrics) {
+        this.router = router;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 普通缓存获取
+     *
+     * @param key 键
+     * @return 值
+     */
+    public Object get(String key) {
+        if (key == null) {
+            return null;
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return RedisChunks.get(router.apply(key), key);
+        } catch (RuntimeException e) {
+            metrics.error("readOnly.get", key);
+            throw e;
+        } finally {
+            metrics.record("readOnly.get", key, startNanos);
+        }
+    }
+
+    /**
+     * 判断key是否存在
+     *
+     * @param key 键
+     * @return true 存在 false不存在
+     */
+    public boolean hasKey(String key) {
+        long startNanos = System.nanoTime();
+        try {
+            return Boolean.TRUE.equals(router.apply(key).hasKey(key));
+        } catch (Exception e) {
+            metrics.error("readOnly.hasKey", key);
+            e.printStackTrace();
+            return false;
+        } finally {
+            metrics.record("readOnly.hasKey", key, startNanos);
+        }
+    }
+
+    /**
+     * HashGet
+     *
+     * @param key  键 不能为null
+     * @param item 项 不能为null
+     * @return 值
+     */
+    public Object hget(String key, String item) {
+        long startNanos = System.nanoTime();
+        try {
+            return router.apply(key).opsForHash().get(key, item);
+        } catch (RuntimeException e) {
+            metrics.error("readOnly.hget", key);
+            throw e;
+        } finally {
+            metrics.record("readOnly.hget", key, startNanos);
+        }
+    }
+
+    /**
+     * 获取hashKey对应的所有键值
+     *
+     * @param key 键
+     * @return 对应的多个键值
+     */
+    public Map<Object, Object> hmget(String key) {
+        long startNanos = System.nanoTime();
+        try {
+            return router.apply(key).opsForHash().entries(key);
+        } catch (RuntimeException e) {
+            metrics.error("readOnly.hmget", key);
+            throw e;
+        } finally {
+            metrics.record("readOnly.hmget", key, startNanos);
+        }
+    }
+
+    /**
+     * 根据key获取Set中的所有值
+     *
+     * @param key 键
+     * @return 值
+     */
+    public Set<Object> sGet(String key) {
+        long startNanos = System.nanoTime();
+        try {
+            return router.apply(key).opsForSet().members(key);
+        } catch (Exception e) {
+            metrics.error("readOnly.sGet", key);
+            e.printStackTrace();
+            return null;
+        } finally {
+            metrics.record("readOnly.sGet", key, startNanos);
+        }
+    }
+
+    /**
+     * 获取list缓存的内容
+     *
+     * @param key   键
+     * @param start 开始
+     * @param end   结束 0 到 -1代表所有值
+     * @return 值
+     */
+    public List<Object> lGet(String key, long start, long end) {
+        long startNanos = System.nanoTime();
+        try {
+            return router.apply(key).opsForList().range(key, start, end);
+        } catch (Exception e) {
+            metrics.error("readOnly.lGet", key);
+            e.printStackTrace();
+            return null;
+        } finally {
+            metrics.record("readOnly.lGet", key, startNanos);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.mdx.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于Micrometer的 mq 消费指标
+ * <p>
+ * 指标：mdx.mq.consume.handle(处理耗时，单条或单批)、mdx.mq.consume.latency(发送到开始处理的端到端延迟)、
+ * mdx.mq.consume.messages(按result区分成功失败的消息数，即吞吐)、mdx.mq.consume.inflight(处理中消息数)、
+ * mdx.mq.consume.duplicates(幂等消费丢弃的重复消息数)。
+ * 每个消费者的指标首次使用时注册后缓存，记录时不创建标签对象
+ */
+public class MicrometerMqConsumerMetrics implements MqConsumerMetrics {
+
+    private final MeterRegistry registry;
+
+    private final ZoneId zoneId;
+
+    private final ConcurrentMap<String, Meters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry 指标注册中心
+     * @param zoneId   消息发送时间所在时区
+     */
+    public MicrometerMqConsumerMetrics(MeterRegistry registry, ZoneId zoneId) {
+        this.registry = registry;
+        this.zoneId = zoneId;
+    }
+
+    @Override
+    public void received(String consumer, LocalDateTime sendTime) {
+        if (sendTime == null) {
+            return;
+        }
+        long sendMillis = (sendTime.toLocalDate().toEpochDay() * 86400L + sendTime.toLocalTime().toSecondOfDay()
+                - zoneId.getRules().getOffset(sendTime).getTotalSeconds()) * 1000L
+                + sendTime.getNano() / 1000000;
+        long latency = System.currentTimeMillis() - sendMillis;
+        if (latency >= 0) {
+            meters(consumer).latency.record(latency, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void begin(String consumer, int count) {
+        meters(consumer).inflight.addAndGet(count);
+    }
+
+    @Override
+    public void end(String consumer, int count, long startNanos, boolean success) {
+        Meters m = meters(consumer);
+        m.handle.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        (success ? m.succeeded : m.failed).increment(count);
+        m.inflight.addAndGet(-count);
+    }
+
+    @Override
+    public void duplicate(String consumer) {
+        meters(consumer).duplicates.increment();
+    }
+
+    private Meters meters(String consumer) {
+        Meters m = meters.get(consumer);
+        if (m == null) {
+            m = meters.computeIfAbsent(consumer, Meters::new);
+        }
+        return m;
+    }
+
+    private final class Meters {
+        private final Timer handle;
+        private final Timer latency;
+        private final Counter succeeded;
+        private final Counter failed;
+        private final Counter duplicates;
+        private final AtomicInteger inflight = new AtomicInteger();
+
+        private Meters(String consumer) {
+            this.handle = Timer.builder("mdx.mq.consume.handle")
+                    .description("mq 消息处理耗时")
+                    .tag("consumer", consumer)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .register(registry);
+            this.latency = Timer.builder("mdx.mq.consume.latency")
+                    .description("mq 消息从发送到开始处理的延迟")
+                    .tag("consumer", consumer)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .register(registry);
+            this.succeeded = Counter.builder("mdx.mq.consume.messages")
+                    .description("mq 消费消息数")
+                    .tag("consumer", consumer)
+                    .tag("result", "success")
+                    .register(registry);
+            this.failed = Counter.builder("mdx.mq.consume.messages")
+                    .description("mq 消费消息数")
+                    .tag("consumer", consumer)
+                    .tag("result", "failure")
+                    .register(registry);
+            this.duplicates = Counter.builder("mdx.mq.consume.duplicates")
+                    .description("mq 幂等消费丢弃的重复消息数")
+                    .tag("consumer", consumer)
+                    .register(registry);
+            Gauge.builder("mdx.mq.consume.inflight", inflight, AtomicInteger::get)
+                    .description("mq 处理中消息数")
+                    .tag("consumer", consumer)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.mdx.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Micrometer的 mq 发送指标
+ * <p>
+ * 指标：mdx.mq.send(发送耗时，按目的地和发送方式)、mdx.mq.send.status(按SendStatus计数，异常为EXCEPTION)、
+ * mdx.mq.send.size(消息体字节分布)、mdx.mq.send.attempts(向broker的请求次数，多于发送次数的部分即重试)、
+ * mdx.mq.send.audit.dropped(异步发送日志队列满丢弃的条数)。
+ * 目的地和主题标签超过上限后统一记为other，防止动态topic撑爆指标
+ */
+public class MicrometerMqProducerMetrics implements MqProducerMetrics {
+
+    private static final String OTHER = "other";
+
+    private static final String EXCEPTION = "EXCEPTION";
+
+    private static final SendStatus[] STATUSES = SendStatus.values();
+
+    private final MeterRegistry registry;
+
+    private final int maxTags;
+
+    private final ConcurrentMap<String, DestinationMeters> destinations = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, TopicMeters> topics = new ConcurrentHashMap<>();
+
+    private final Counter auditDropped;
+
+    /**
+     * @param registry 指标注册中心
+     * @param maxTags  目的地、主题标签各自的数量上限
+     */
+    public MicrometerMqProducerMetrics(MeterRegistry registry, int maxTags) {
+        this.registry = registry;
+        this.maxTags = maxTags;
+        this.auditDropped = Counter.builder("mdx.mq.send.audit.dropped")
+                .description("mq 异步发送日志队列满丢弃的条数")
+                .register(registry);
+    }
+
+    @Override
+    public void sent(String operation, String destination, long startNanos, SendResult result) {
+        DestinationMeters m = destination(destination);
+        m.timer(operation).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (result != null && result.getSendStatus() != null) {
+            m.statuses[result.getSendStatus().ordinal()].increment();
+        }
+    }
+
+    @Override
+    public void failed(String operation, String destination, long startNanos) {
+        DestinationMeters m = destination(destination);
+        m.timer(operation).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        m.exceptions.increment();
+    }
+
+    @Override
+    public void attempt(String topic, int bodyBytes, boolean success) {
+        TopicMeters m = topic(topic);
+        m.size.record(bodyBytes);
+        (success ? m.succeeded : m.failed).increment();
+    }
+
+    @Override
+    public void auditDropped() {
+        auditDropped.increment();
+    }
+
+    private DestinationMeters destination(String destination) {
+        DestinationMeters m = destinations.get(destination);
+        if (m != null) {
+            return m;
+        }
+        return destinations.computeIfAbsent(destinations.size() < maxTags ? destination : OTHER, DestinationMeters::new);
+    }
+
+    private TopicMeters topic(String topic) {
+        TopicMeters m = topics.get(topic);
+        if (m != null) {
+            return m;
+        }
+        return topics.computeIfAbsent(topics.size() < maxTags ? topic : OTHER, TopicMeters::new);
+    }
+
+    private final class DestinationMeters {
+        private final String destination;
+        private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+        private final Counter[] statuses = new Counter[STATUSES.length];
+        private final Counter exceptions;
+
+        private DestinationMeters(String destination) {
+            this.destination = destination;
+            for (SendStatus status : STATUSES) {
+                statuses[status.ordinal()] = statusCounter(status.name());
+            }
+            this.exceptions = statusCounter(EXCEPTION);
+        }
+
+        private Timer timer(String operation) {
+            Timer timer = timers.get(operation);
+            if (timer == null) {
+                timer = timers.computeIfAbsent(operation, o -> Timer.builder("mdx.mq.send")
+                        .description("mq 发送耗时")
+                        .tag("destination", destination)
+                        .tag("operation", o)
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .register(registry));
+            }
+            return timer;
+        }
+
+        private Counter statusCounter(String status) {
+            return Counter.builder("mdx.mq.send.status")
+                    .description("mq 发送结果")
+                    .tag("destination", destination)
+                    .tag("status", status)
+                    .register(registry);
+        }
+    }
+
+    private final class TopicMeters {
+        private final DistributionSummary size;
+        private final Counter succeeded;
+        private final Counter failed;
+
+        private TopicMeters(String topic) {
+            this.size = DistributionSummary.builder("mdx.mq.send.size")
+                    .description("mq 消息体大小")
+                    .baseUnit("bytes")
+                    .tag("topic", topic)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .register(registry);
+            this.succeeded = attempts(topic, "success");
+            this.failed = attempts(topic, "failure");
+        }
+
+        private Counter attempts(String topic, String result) {
+            return Counter.builder("mdx.mq.send.attempts")
+                    .description("mq 向broker发送请求次数，包含重试")
+                    .tag("topic", topic)
+                    .tag("result", result)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.mdx.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Micrometer的 RedisManager 指标
+ * <p>
+ * 指标：mdx.redis.operation(timer，p50/p99/p999)、mdx.redis.operation.errors(counter)、mdx.redis.payload(字节分布)。
+ * prefix 标签只取配置的key前缀，未匹配为other，多key操作为none，标签数量有上限。
+ * 每个 操作+前缀 的指标首次使用时注册后缓存，记录时只做数组下标查找，不创建标签对象
+ */
+public class MicrometerRedisMetrics implements RedisMetrics {
+
+    private static final String OTHER = "other";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+
+    private final String[] prefixes;
+
+    private final ConcurrentMap<String, Meters[]> meters = new ConcurrentHashMap<>();
+
+    private final DistributionSummary writePayload;
+
+    private final DistributionSummary readPayload;
+
+    public MicrometerRedisMetrics(MeterRegistry registry, List<String> prefixes) {
+        this.registry = registry;
+        this.prefixes = prefixes.toArray(new String[0]);
+        this.writePayload = payloadSummary("write");
+        this.readPayload = payloadSummary("read");
+    }
+
+    @Override
+    public void record(String operation, String key, long startNanos) {
+        meters(operation, key).timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void error(String operation, String key) {
+        meters(operation, key).errors.increment();
+    }
+
+    @Override
+    public void payload(boolean write, int bytes) {
+        (write ? writePayload : readPayload).record(bytes);
+    }
+
+    private Meters meters(String operation, String key) {
+        Meters[] byPrefix = meters.get(operation);
+        if (byPrefix == null) {
+            byPrefix = meters.computeIfAbsent(operation, o -> new Meters[prefixes.length + 2]);
+        }
+        int index = prefixIndex(key);
+        Meters m = byPrefix[index];
+        if (m == null) {
+            // 并发时可能重复创建，registry按名称和标签返回同一个指标
+            m = new Meters(operation, prefixTag(index));
+            byPrefix[index] = m;
+        }
+        return m;
+    }
+
+    private int prefixIndex(String key) {
+        if (key == null) {
+            return prefixes.length + 1;
+        }
+        for (int i = 0; i < prefixes.length; i++) {
+            if (key.startsWith(prefixes[i])) {
+                return i;
+            }
+        }
+        return prefixes.length;
+    }
+
+    private String prefixTag(int index) {
+        if (index < prefixes.length) {
+            return prefixes[index];
+        }
+        return index == prefixes.length ? OTHER : NONE;
+    }
+
+    private DistributionSummary payloadSummary(String direction) {
+        return DistributionSummary.builder("mdx.redis.payload")
+                .description("redis value 序列化后大小")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+    }
+
+    private final class Meters {
+        private final Timer timer;
+        private final Counter errors;
+
+        private Meters(String operation, String prefix) {
+            this.timer = Timer.builder("mdx.redis.operation")
+                    .description("RedisManager 操作耗时")
+                    .tag("operation", operation)
+                    .tag("prefix", prefix)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .register(registry);
+            this.errors = Counter.builder("mdx.redis.operation.errors")
+                    .description("RedisManager 操作失败次数")
+                    .tag("operation", operation)
+                    .tag("prefix", prefix)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mdx.common.metrics;
+
+import java.time.LocalDateTime;
+
+/**
+ * mq 消费指标
+ * <p>
+ * 以消费者名称为维度，未引入Micrometer时使用 {@link #NOOP}
+ */
+public interface MqConsumerMetrics {
+
+    MqConsumerMetrics NOOP = new MqConsumerMetrics() {
+        @Override
+        public void received(String consumer, LocalDateTime sendTime) {
+        }
+
+        @Override
+        public void begin(String consumer, int count) {
+        }
+
+        @Override
+        public void end(String consumer, int count, long startNanos, boolean success) {
+        }
+
+        @Override
+        public void duplicate(String consumer) {
+        }
+    };
+
+    /**
+     * 收到消息，按发送时间记录端到端延迟
+     *
+     * @param consumer 消费者名称
+     * @param sendTime 消息发送时间
+     */
+    void received(String consumer, LocalDateTime sendTime);
+
+    /**
+     * 开始处理，处理中数量增加
+     *
+     * @param consumer 消费者名称
+     * @param count    消息条数，批量消费时为批次大小
+     */
+    void begin(String consumer, int count);
+
+    /**
+     * 处理结束，记录处理耗时和结果，处理中数量减少
+     *
+     * @param consumer   消费者名称
+     * @param count      消息条数
+     * @param startNanos 开始时的 System.nanoTime()
+     * @param success    是否成功
+     */
+    void end(String consumer, int count, long startNanos, boolean success);
+
+    /**
+     * 幂等消费丢弃一条重复消息
+     *
+     * @param consumer 消费者名称
+     */
+    void duplicate(String consumer);
+}
@@ -0,0 +1,62 @@
+package com.mdx.common.metrics;
+
+import org.apache.rocketmq.client.producer.SendResult;
+
+/**
+ * mq 发送指标
+ * <p>
+ * 以目的地和发送方式为维度，未引入Micrometer时使用 {@link #NOOP}
+ */
+public interface MqProducerMetrics {
+
+    MqProducerMetrics NOOP = new MqProducerMetrics() {
+        @Override
+        public void sent(String operation, String destination, long startNanos, SendResult result) {
+        }
+
+        @Override
+        public void failed(String operation, String destination, long startNanos) {
+        }
+
+        @Override
+        public void attempt(String topic, int bodyBytes, boolean success) {
+        }
+
+        @Override
+        public void auditDropped() {
+        }
+    };
+
+    /**
+     * 发送完成，记录耗时和发送状态
+     *
+     * @param operation   发送方式，应为常量
+     * @param destination 目的地
+     * @param startNanos  开始时的 System.nanoTime()
+     * @param result      发送结果
+     */
+    void sent(String operation, String destination, long startNanos, SendResult result);
+
+    /**
+     * 发送异常
+     *
+     * @param operation   发送方式，应为常量
+     * @param destination 目的地
+     * @param startNanos  开始时的 System.nanoTime()
+     */
+    void failed(String operation, String destination, long startNanos);
+
+    /**
+     * 生产者向broker的单次请求，包含内部重试
+     *
+     * @param topic     主题
+     * @param bodyBytes 消息体字节数
+     * @param success   请求是否成功
+     */
+    void attempt(String topic, int bodyBytes, boolean success);
+
+    /**
+     * 异步发送日志队列已满，丢弃一条日志
+     */
+    void auditDropped();
+}
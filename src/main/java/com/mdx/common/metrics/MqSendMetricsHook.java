@@ -0,0 +1,36 @@
+package com.mdx.common.metrics;
+
+import org.apache.rocketmq.client.hook.SendMessageContext;
+import org.apache.rocketmq.client.hook.SendMessageHook;
+import org.apache.rocketmq.common.message.Message;
+
+/**
+ * 生产者发送钩子，每次向broker发出请求(包括失败重试)后记录消息大小和结果
+ */
+public class MqSendMetricsHook implements SendMessageHook {
+
+    private final MqProducerMetrics metrics;
+
+    public MqSendMetricsHook(MqProducerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String hookName() {
+        return "mdxSendMetrics";
+    }
+
+    @Override
+    public void sendMessageBefore(SendMessageContext context) {
+    }
+
+    @Override
+    public void sendMessageAfter(SendMessageContext context) {
+        Message message = context.getMessage();
+        if (message == null) {
+            return;
+        }
+        byte[] body = message.getBody();
+        metrics.attempt(message.getTopic(), body == null ? 0 : body.length, context.getException() == null);
+    }
+}
@@ -0,0 +1,49 @@
+package com.mdx.common.metrics;
+
+/**
+ * RedisManager 操作指标
+ * <p>
+ * 调用方在操作开始时取 System.nanoTime()，结束时连同操作名和key交给实现记录；
+ * 未引入Micrometer时使用 {@link #NOOP}
+ */
+public interface RedisMetrics {
+
+    RedisMetrics NOOP = new RedisMetrics() {
+        @Override
+        public void record(String operation, String key, long startNanos) {
+        }
+
+        @Override
+        public void error(String operation, String key) {
+        }
+
+        @Override
+        public void payload(boolean write, int bytes) {
+        }
+    };
+
+    /**
+     * 记录一次操作耗时
+     *
+     * @param operation  操作名，应为常量
+     * @param key        键，多key操作传null
+     * @param startNanos 开始时的 System.nanoTime()
+     */
+    void record(String operation, String key, long startNanos);
+
+    /**
+     * 记录一次操作失败
+     *
+     * @param operation 操作名，应为常量
+     * @param key       键，多key操作传null
+     */
+    void error(String operation, String key);
+
+    /**
+     * 记录一次序列化后的value大小
+     *
+     * @param write true为写入，false为读取
+     * @param bytes 字节数
+     */
+    void payload(boolean write, int bytes);
+}
@@ -0,0 +1,134 @@
+package com.mdx.common.util;
+
+import com.mdx.common.base.BaseMqMessage;
+import com.mdx.common.manager.MqIdempotentStore;
+import com.mdx.common.metrics.MqConsumerMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量消费的监听器基类
+ * <p>
+ * 消息按 batchSize 分组后调用 handleBatch；concurrency 大于1时先按消息key分到各消费线程，
+ * 同一key的消息总在同一线程内按原顺序分组处理
+ */
+public abstract class BaseBatchMqMessageListener<T extends BaseMqMessage> extends BaseMqMessageListener<T> {
+
+    /**
+     * 批量消息处理
+     *
+     * @param messages 待处理消息，不为空
+     */
+    protected abstract void handleBatch(List<T> messages);
+
+    /**
+     * 单次 handleBatch 的最大消息数
+     */
+    protected int batchSize() {
+        return 32;
+    }
+
+    @Override
+    protected void handleMessage(T message) {
+        handleBatch(Collections.singletonList(message));
+    }
+
+    @Override
+    public void dispatchMessages(List<T> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        if (concurrency() <= 1) {
+            dispatchBatch(messages);
+            return;
+        }
+        KeyOrderedExecutor orderedExecutor = executor();
+        List<List<T>> laneMessages = new ArrayList<>(orderedExecutor.concurrency());
+        for (int i = 0; i < orderedExecutor.concurrency(); i++) {
+            laneMessages.add(new ArrayList<>());
+        }
+        for (T message : messages) {
+            laneMessages.get(orderedExecutor.laneOf(message.getKey())).add(message);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (List<T> lane : laneMessages) {
+            if (!lane.isEmpty()) {
+                futures.add(orderedExecutor.submit(lane.get(0).getKey(), () -> dispatchBatch(lane)));
+            }
+        }
+        await(futures);
+    }
+
+    /**
+     * 按 batchSize 分组依次处理
+     */
+    private void dispatchBatch(List<T> messages) {
+        int size = batchSize();
+        for (int from = 0; from < messages.size(); from += size) {
+            List<T> batch = messages.subList(from, Math.min(from + size, messages.size()));
+            MqIdempotentStore store = idempotentStore();
+            if (store == null) {
+                timedHandleBatch(batch);
+            } else {
+                handleIdempotentBatch(store, batch);
+            }
+        }
+    }
+
+    /**
+     * 处理一批消息并记录指标
+     */
+    private void timedHandleBatch(List<T> batch) {
+        MqConsumerMetrics metrics = consumerMetrics();
+        for (T message : batch) {
+            metrics.received(consumerName(), message.getSendTime());
+        }
+        metrics.begin(consumerName(), batch.size());
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            handleBatch(batch);
+            success = true;
+        } finally {
+            metrics.end(consumerName(), batch.size(), start, success);
+        }
+        logger.debug("[{}]批量消费成功，条数[{}]，耗时[{}ms]", consumerName(), batch.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * 丢弃重复消息后处理，失败时释放本批全部记录
+     */
+    private void handleIdempotentBatch(MqIdempotentStore store, List<T> batch) {
+        List<T> accepted = new ArrayList<>(batch.size());
+        List<MqIdempotentStore.Claim> claims = new ArrayList<>(batch.size());
+        for (T message : batch) {
+            MqIdempotentStore.Claim claim = store.claim(consumerName(), message.getKey());
+            if (claim == MqIdempotentStore.Claim.DUPLICATE) {
+                consumerMetrics().duplicate(consumerName());
+                logger.debug("[{}]消息消费重复，已舍弃", message.getKey());
+                continue;
+            }
+            accepted.add(message);
+            claims.add(claim);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            timedHandleBatch(accepted);
+        } catch (Throwable e) {
+            for (int i = 0; i < accepted.size(); i++) {
+                store.release(consumerName(), accepted.get(i).getKey(), claims.get(i));
+            }
+            throw e;
+        }
+        for (int i = 0; i < accepted.size(); i++) {
+            store.complete(consumerName(), accepted.get(i).getKey(), claims.get(i));
+        }
+    }
+}
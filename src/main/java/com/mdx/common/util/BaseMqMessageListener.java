@@ -2,17 +2,61 @@ package com.mdx.common.util;
 
 import com.alibaba.fastjson.JSONObject;
 import com.mdx.common.base.BaseMqMessage;
+import com.mdx.common.manager.MqIdempotentStore;
+import com.mdx.common.metrics.MqConsumerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
-public abstract class BaseMqMessageListener<T extends BaseMqMessage> {
+/**
+ * mq监听器基类
+ * <p>
+ * RocketMQListener.onMessage 每次只收到一条消息，直接调用 dispatchMessage 即可。
+ * 需要按key并发或批量消费时，子类同时实现 RocketMQPushConsumerLifecycleListener，
+ * 在 prepareStart 中设置 consumeMessageBatchMaxSize 并注册自己的 MessageListenerConcurrently(顺序消费用 MessageListenerOrderly)，
+ * 替换容器默认的逐条回调，把收到的 MessageExt 列表反序列化为消息后调用 dispatchMessages，抛出异常时返回稍后重试。
+ * 反序列化放在 BaseMqMessage.withoutKeyGeneration 中执行，避免为每条消息生成随后被覆盖的key：
+ * <pre>{@code
+ * public void prepareStart(DefaultMQPushConsumer consumer) {
+ *     consumer.setConsumeMessageBatchMaxSize(32);
+ *     consumer.registerMessageListener((MessageListenerConcurrently) (msgs, context) -> {
+ *         try {
+ *             dispatchMessages(convert(msgs));
+ *             return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+ *         } catch (Exception e) {
+ *             return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+ *         }
+ *     });
+ * }
+ * }</pre>
+ * 监听器作为spring bean关闭时停止消费线程，子类覆盖 destroy 时需要调用 super.destroy()
+ */
+public abstract class BaseMqMessageListener<T extends BaseMqMessage> implements DisposableBean {
     /**
      * 这里的日志记录器是哪个子类的就会被哪个子类的类进行初始化
      */
     protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    private volatile KeyOrderedExecutor executor;
+
+    @Autowired(required = false)
+    private MqIdempotentStore idempotentStore;
+
+    /**
+     * 消费指标，未引入Micrometer时不记录
+     */
+    @Autowired(required = false)
+    private MqConsumerMetrics consumerMetrics = MqConsumerMetrics.NOOP;
+
     /**
      * 消息者名称
      *
@@ -29,25 +73,169 @@ public abstract class BaseMqMessageListener<T extends BaseMqMessage> {
     protected abstract void handleMessage(T message);
 
     /**
-     * 由父类来完成基础的日志和调配，下面的只是提供一个思路
+     * 是否按消息key幂等消费，开启后重复投递的消息直接丢弃
+     *
+     * @return 默认不开启
+     */
+    protected boolean idempotent() {
+        return false;
+    }
+
+    /**
+     * 开启幂等消费且存在幂等记录时返回记录，否则返回null
+     */
+    protected MqIdempotentStore idempotentStore() {
+        return idempotent() ? idempotentStore : null;
+    }
+
+    /**
+     * 消费指标
+     */
+    protected MqConsumerMetrics consumerMetrics() {
+        return consumerMetrics;
+    }
+
+    /**
+     * 由父类来完成基础的日志和调配
      */
     public void dispatchMessage(T message) {
-        logger.debug("[{}]消费者收到消息[{}]", consumerName(), JSONObject.toJSONString(message));
-        /*RLock lock = RedissonUtil.getLock(message.getKey());
-        if(lock.isLocked()){
-            logger.debug("[{}]消息消费重复，已舍弃",message.getKey());
+        if (logger.isDebugEnabled()) {
+            logger.debug("[{}]消费者收到消息[{}]", consumerName(), JSONObject.toJSONString(message));
+        }
+        MqIdempotentStore store = idempotentStore();
+        MqIdempotentStore.Claim claim = null;
+        if (store != null) {
+            claim = store.claim(consumerName(), message.getKey());
+            if (claim == MqIdempotentStore.Claim.DUPLICATE) {
+                consumerMetrics.duplicate(consumerName());
+                logger.debug("[{}]消息消费重复，已舍弃", message.getKey());
+                return;
+            }
+        }
+        consumerMetrics.received(consumerName(), message.getSendTime());
+        consumerMetrics.begin(consumerName(), 1);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            handleMessage(message);
+            success = true;
+        } catch (Throwable e) {
+            if (store != null) {
+                store.release(consumerName(), message.getKey(), claim);
+            }
+            throw e;
+        } finally {
+            consumerMetrics.end(consumerName(), 1, start, success);
+        }
+        if (store != null) {
+            store.complete(consumerName(), message.getKey(), claim);
+        }
+        logger.debug("[{}]消息消费成功，耗时[{}ms]", message.getKey(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * 消费并发数，大于1时 dispatchMessages 按消息key分到多个线程并行处理，同一key保持顺序
+     *
+     * @return 并发数，默认1即在调用线程中逐条处理
+     */
+    protected int concurrency() {
+        return 1;
+    }
+
+    /**
+     * 每个消费线程的等待队列长度，队列满时阻塞分发线程
+     */
+    protected int queueCapacity() {
+        return 1024;
+    }
+
+    /**
+     * 分发一组消息，全部处理完成后返回，任一消息处理失败时抛出异常交由mq重试。
+     * 某条消息失败后，本次分发中同一key的后续消息不再处理直接失败，重投后仍按原顺序消费
+     */
+    public void dispatchMessages(List<T> messages) {
+        if (messages == null || messages.isEmpty()) {
             return;
-        }*/
-        long start = Instant.now().toEpochMilli();
-        handleMessage(message);
-        long end = Instant.now().toEpochMilli();
-        logger.debug("[{}]消息消费成功，耗时[{}ms]",message.getKey(), (end - start));
-        //RedissonUtil.lock(message.getKey());
-//        try {
-//        } catch (Exception e) {
-////            logger.error("消息消费异常", e);
-//            throw new RuntimeException(e);
-//        }
+        }
+        if (concurrency() <= 1) {
+            for (T message : messages) {
+                dispatchMessage(message);
+            }
+            return;
+        }
+        KeyOrderedExecutor orderedExecutor = executor();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(messages.size());
+        for (T message : messages) {
+            String key = message.getKey();
+            futures.add(orderedExecutor.submit(key, () -> {
+                Throwable previous = key == null ? null : failures.get(key);
+                if (previous != null) {
+                    throw new IllegalStateException("[" + key + "]同一key的前序消息消费失败，本条未处理", previous);
+                }
+                try {
+                    dispatchMessage(message);
+                } catch (Throwable e) {
+                    if (key != null) {
+                        failures.putIfAbsent(key, e);
+                    }
+                    throw e;
+                }
+            }));
+        }
+        await(futures);
+    }
 
+    /**
+     * 消费线程池，首次使用时创建
+     */
+    protected KeyOrderedExecutor executor() {
+        KeyOrderedExecutor orderedExecutor = executor;
+        if (orderedExecutor == null) {
+            synchronized (this) {
+                orderedExecutor = executor;
+                if (orderedExecutor == null) {
+                    orderedExecutor = new KeyOrderedExecutor("mq-" + consumerName(), concurrency(), queueCapacity());
+                    executor = orderedExecutor;
+                }
+            }
+        }
+        return orderedExecutor;
+    }
+
+    /**
+     * 等待全部任务完成，有失败时按提交顺序抛出第一个异常
+     */
+    protected void await(List<CompletableFuture<Void>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ignored) {
+            // 按提交顺序找到第一个失败的任务
+        }
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 停止消费线程，已提交的消息继续处理
+     */
+    @Override
+    public void destroy() {
+        KeyOrderedExecutor orderedExecutor = executor;
+        if (orderedExecutor != null) {
+            orderedExecutor.shutdown();
+        }
     }
 }
@@ -0,0 +1,101 @@
+package com.mdx.common.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存格式化结果的当前时间
+ * <p>
+ * 每种格式的结果在同一秒内只格式化一次，毫秒时间戳字符串在同一毫秒内只生成一次，
+ * 命中时只有一次volatile读，不创建对象。格式中包含秒以下字段(S、n、N、A)时不缓存
+ */
+public final class CachedClock {
+
+    /**
+     * 缓存的格式最大数量，超出后直接格式化
+     */
+    private static final int MAX_CACHED_PATTERNS = 64;
+
+    private static final ConcurrentMap<String, Slot> SLOTS = new ConcurrentHashMap<>();
+
+    private static volatile Snapshot epochMillis = new Snapshot(-1, null);
+
+    private CachedClock() {
+    }
+
+    /**
+     * 当前时间字符串
+     *
+     * @param pattern 时间格式
+     * @return 时间字符串
+     */
+    public static String now(String pattern) {
+        long millis = System.currentTimeMillis();
+        Slot slot = SLOTS.get(pattern);
+        if (slot == null) {
+            if (!cacheable(pattern) || SLOTS.size() >= MAX_CACHED_PATTERNS) {
+                return format(millis, pattern);
+            }
+            slot = SLOTS.computeIfAbsent(pattern, p -> new Slot());
+        }
+        long second = Math.floorDiv(millis, 1000L);
+        Snapshot snapshot = slot.snapshot;
+        if (snapshot.time == second) {
+            return snapshot.text;
+        }
+        String text = format(second * 1000L, pattern);
+        slot.snapshot = new Snapshot(second, text);
+        return text;
+    }
+
+    /**
+     * 当前毫秒时间戳字符串
+     */
+    public static String epochMillis() {
+        long millis = System.currentTimeMillis();
+        Snapshot snapshot = epochMillis;
+        if (snapshot.time == millis) {
+            return snapshot.text;
+        }
+        String text = Long.toString(millis);
+        epochMillis = new Snapshot(millis, text);
+        return text;
+    }
+
+    private static boolean cacheable(String pattern) {
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && (c == 'S' || c == 'n' || c == 'N' || c == 'A')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String format(long millis, String pattern) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), LocalDateUtil.zoneId);
+        return LocalDateUtil.localDateTimeToString(time, pattern);
+    }
+
+    private static final class Slot {
+        private volatile Snapshot snapshot = new Snapshot(Long.MIN_VALUE, null);
+    }
+
+    /**
+     * 时间和对应的字符串，作为整体发布保证两者一致
+     */
+    private static final class Snapshot {
+        private final long time;
+        private final String text;
+
+        private Snapshot(long time, String text) {
+            this.time = time;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.mdx.common.util;
+
+/**
+ * 消息key生成器
+ */
+@FunctionalInterface
+public interface KeyGenerator {
+
+    /**
+     * 生成key
+     *
+     * @return key
+     */
+    String nextKey();
+}
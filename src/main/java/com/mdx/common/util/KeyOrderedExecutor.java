@@ -0,0 +1,94 @@
+package com.mdx.common.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按key保序的线程池
+ * <p>
+ * 内部为多个单线程通道，key按hash固定落到同一通道，同一key的任务按提交顺序执行，不同key并行执行。
+ * 通道队列有界，队列满时提交线程阻塞等待，对上游形成背压
+ */
+public class KeyOrderedExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    /**
+     * @param name          线程名前缀
+     * @param concurrency   通道数量
+     * @param queueCapacity 单个通道的队列长度
+     */
+    public KeyOrderedExecutor(String name, int concurrency, int queueCapacity) {
+        if (concurrency <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("通道数量和队列长度必须大于0");
+        }
+        this.lanes = new ThreadPoolExecutor[concurrency];
+        AtomicInteger index = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread thread = new Thread(r, name + "-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    (r, executor) -> {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException(name + "已关闭");
+                        }
+                        try {
+                            executor.getQueue().put(r);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(e);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * 通道数量
+     */
+    public int concurrency() {
+        return lanes.length;
+    }
+
+    /**
+     * key对应的通道序号，相同key始终返回相同序号
+     *
+     * @param key 保序key，为空时落到0号通道
+     * @return 通道序号
+     */
+    public int laneOf(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param key  保序key
+     * @param task 任务
+     * @return 任务执行结果
+     */
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        return CompletableFuture.runAsync(task, lanes[laneOf(key)]);
+    }
+
+    /**
+     * 关闭线程池，已提交的任务继续执行
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
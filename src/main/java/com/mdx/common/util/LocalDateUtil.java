@@ -3,6 +3,8 @@ package com.mdx.common.util;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class LocalDateUtil extends Util {
 
@@ -21,6 +23,23 @@ public class LocalDateUtil extends Util {
 	public final static ZoneOffset zoneOffset = ZoneOffset.of("+8");
 
 	public final static String dateformatterYTD = "yyyy年MM月dd日";
+
+	/**
+	 * 缓存的格式最大数量，超出后不再缓存，避免动态拼接的格式撑大缓存
+	 */
+	private final static int MAX_CACHED_FORMATTERS = 256;
+
+	/**
+	 * 格式 -> DateTimeFormatter，DateTimeFormatter 不可变且线程安全
+	 */
+	private final static ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+	static {
+		for (String pattern : new String[]{yearformatter, dateTimeformatter, dateTimeNoSymbolformatter,
+				dateformatter, timeformatter, dateformatterYTD}) {
+			FORMATTERS.put(pattern, DateTimeFormatter.ofPattern(pattern));
+		}
+	}
 	
 	/**
 	 * 不允许实例化
@@ -65,12 +84,12 @@ public class LocalDateUtil extends Util {
 	}
 
 	/**
-	 * 获取当前日期
+	 * 获取当前日期，同一秒内相同格式复用格式化结果
 	 * 
 	 * @return 字符串时间格式
 	 */
 	public static String getNow(String formatter) {
-		return localDateTimeToString(getLocalDateTime(), formatter);
+		return CachedClock.now(formatter);
 	}
 
 	/**
@@ -83,13 +102,24 @@ public class LocalDateUtil extends Util {
 	}
 
 	/**
-	 * 通过日期格式返回 DateTimeFormatter
+	 * 通过日期格式返回 DateTimeFormatter，相同格式复用同一实例
 	 * 
 	 * @param formatter 日期格式
 	 * @return DateTimeFormatter
 	 */
 	public static DateTimeFormatter ofPattern(String formatter) {
-		return DateTimeFormatter.ofPattern(formatter);
+		DateTimeFormatter dateTimeFormatter = FORMATTERS.get(formatter);
+		if (dateTimeFormatter != null) {
+			return dateTimeFormatter;
+		}
+		dateTimeFormatter = DateTimeFormatter.ofPattern(formatter);
+		if (FORMATTERS.size() < MAX_CACHED_FORMATTERS) {
+			DateTimeFormatter exist = FORMATTERS.putIfAbsent(formatter, dateTimeFormatter);
+			if (exist != null) {
+				return exist;
+			}
+		}
+		return dateTimeFormatter;
 	}
 
 	/**
@@ -103,7 +133,7 @@ public class LocalDateUtil extends Util {
 		if (timeStamp <= Integer.MAX_VALUE) {
             timeStamp = timeStamp * 1000L;
         }
-		return timeStampToLocalDateTime(timeStamp).format(ofPattern(formatter));
+		return localDateTimeToString(timeStampToLocalDateTime(timeStamp), formatter);
 	}
 
 	/**
@@ -137,9 +167,62 @@ public class LocalDateUtil extends Util {
 	 * @return 时间字符串
 	 */
 	public static String localDateTimeToString(LocalDateTime arg, String formatter) {
+		int year = arg.getYear();
+		if (year > 0 && year <= 9999) {
+			if (dateTimeformatter.equals(formatter)) {
+				return formatDateTime(arg, true);
+			}
+			if (dateTimeNoSymbolformatter.equals(formatter)) {
+				return formatDateTime(arg, false);
+			}
+		}
 		return arg.format(ofPattern(formatter));
 	}
 
+	/**
+	 * yyyy-MM-dd HH:mm:ss 和 yyyyMMddHHmmss 直接写入字符数组，结果与 DateTimeFormatter 一致
+	 *
+	 * @param arg    时间，年份在1-9999之间
+	 * @param symbol 是否带分隔符
+	 * @return 时间字符串
+	 */
+	private static String formatDateTime(LocalDateTime arg, boolean symbol) {
+		char[] buf = new char[symbol ? 19 : 14];
+		int year = arg.getYear();
+		buf[0] = (char) ('0' + year / 1000);
+		buf[1] = (char) ('0' + year / 100 % 10);
+		buf[2] = (char) ('0' + year / 10 % 10);
+		buf[3] = (char) ('0' + year % 10);
+		int pos = 4;
+		if (symbol) {
+			buf[pos++] = '-';
+		}
+		pos = writeTwoDigits(buf, pos, arg.getMonthValue());
+		if (symbol) {
+			buf[pos++] = '-';
+		}
+		pos = writeTwoDigits(buf, pos, arg.getDayOfMonth());
+		if (symbol) {
+			buf[pos++] = ' ';
+		}
+		pos = writeTwoDigits(buf, pos, arg.getHour());
+		if (symbol) {
+			buf[pos++] = ':';
+		}
+		pos = writeTwoDigits(buf, pos, arg.getMinute());
+		if (symbol) {
+			buf[pos++] = ':';
+		}
+		writeTwoDigits(buf, pos, arg.getSecond());
+		return new String(buf);
+	}
+
+	private static int writeTwoDigits(char[] buf, int pos, int value) {
+		buf[pos] = (char) ('0' + value / 10);
+		buf[pos + 1] = (char) ('0' + value % 10);
+		return pos + 2;
+	}
+
 	/**
 	 * 字符串转LocalDate
 	 * 
@@ -0,0 +1,382 @@
+package com.mdx.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的通配符地址集合
+ * <p>
+ * 匹配结果与 Pattern.compile({@link StringUtil#getRegPath(String)}).matcher(path).matches() 一致：
+ * ** 匹配任意字符，* 匹配除/以外的任意字符，? 和 . 匹配单个字符(同正则，均不匹配换行符)，其余字符按字面匹配。
+ * 构建时把各表达式通配符之前的固定前缀放进字典树，匹配时沿请求地址逐字符下行，
+ * 只对前缀命中的表达式用位图状态机匹配剩余部分，匹配过程不创建对象。
+ * 含其他正则元字符(如 [0-9]、+、|)的表达式按 getRegPath 的结果编译为正则单独匹配。
+ * 构建完成后只读，可多线程共享
+ */
+public final class PathMatcherSet {
+
+    private static final byte LITERAL = 0;
+    private static final byte ANY_CHAR = 1;
+    private static final byte SEGMENT_STAR = 2;
+    private static final byte ANY_STAR = 3;
+
+    /**
+     * 位图状态机最多支持的通配部分长度，超出的表达式退回正则
+     */
+    private static final int MAX_PROGRAM_LENGTH = 63;
+
+    /**
+     * 除 . 以外会改变 getRegPath 结果含义的正则元字符
+     */
+    private static final String REGEX_META = "\\[](){}+^$|";
+
+    private final Node root;
+
+    private final Pattern[] regexes;
+
+    private PathMatcherSet(Node root, Pattern[] regexes) {
+        this.root = root;
+        this.regexes = regexes;
+    }
+
+    /**
+     * 编译通配符地址
+     *
+     * @param patterns 通配符表达式
+     * @return 地址集合
+     */
+    public static PathMatcherSet compile(String... patterns) {
+        Builder root = new Builder();
+        List<Pattern> regexes = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern == null) {
+                continue;
+            }
+            if (hasRegexMeta(pattern)) {
+                regexes.add(Pattern.compile(StringUtil.getRegPath(pattern)));
+                continue;
+            }
+            Tokens tokens = tokenize(pattern);
+            byte[] types = tokens.types;
+            char[] chars = tokens.chars;
+            int prefixLength = 0;
+            while (prefixLength < types.length && types[prefixLength] == LITERAL) {
+                prefixLength++;
+            }
+            Builder node = root;
+            for (int i = 0; i < prefixLength; i++) {
+                node = node.children.computeIfAbsent(chars[i], c -> new Builder());
+            }
+            if (prefixLength == types.length) {
+                node.exact = true;
+            } else {
+                node.programs.add(Program.of(types, chars, prefixLength));
+            }
+        }
+        return new PathMatcherSet(root.build(), regexes.toArray(new Pattern[0]));
+    }
+
+    /**
+     * 判断地址是否命中任意一个表达式
+     *
+     * @param path 请求地址
+     * @return 命中返回true
+     */
+    public boolean matches(String path) {
+        if (path == null) {
+            return false;
+        }
+        if (matchesTrie(path)) {
+            return true;
+        }
+        for (Pattern regex : regexes) {
+            if (regex.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesTrie(String path) {
+        Node node = root;
+        int length = path.length();
+        for (int i = 0; ; i++) {
+            for (Program program : node.programs) {
+                if (program.matches(path, i)) {
+                    return true;
+                }
+            }
+            if (i == length) {
+                return node.exact;
+            }
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 按 getRegPath 的规则把表达式拆分为匹配单元
+     *
+     * @param pattern 通配符表达式
+     * @return 匹配单元
+     */
+    private static Tokens tokenize(String pattern) {
+        int len = pattern.length();
+        char[] chars = new char[len];
+        byte[] types = new byte[len];
+        int size = 0;
+        boolean preX = false;
+        for (int i = 0; i < len; i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                if (preX) {
+                    types[size++] = ANY_STAR;
+                    preX = false;
+                } else if (i + 1 == len) {
+                    types[size++] = SEGMENT_STAR;
+                } else {
+                    preX = true;
+                }
+            } else {
+                if (preX) {
+                    types[size++] = SEGMENT_STAR;
+                    preX = false;
+                }
+                if (c == '?' || c == '.') {
+                    types[size++] = ANY_CHAR;
+                } else {
+                    chars[size] = c;
+                    types[size++] = LITERAL;
+                }
+            }
+        }
+        Tokens tokens = new Tokens(size);
+        System.arraycopy(types, 0, tokens.types, 0, size);
+        System.arraycopy(chars, 0, tokens.chars, 0, size);
+        return tokens;
+    }
+
+    private static boolean hasRegexMeta(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (REGEX_META.indexOf(pattern.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 与正则 . 一致，不匹配换行符
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * 匹配单元，chars仅对字面单元有效
+     */
+    private static final class Tokens {
+        private final byte[] types;
+        private final char[] chars;
+
+        private Tokens(int size) {
+            this.types = new byte[size];
+            this.chars = new char[size];
+        }
+    }
+
+    /**
+     * 字典树节点，子节点按字符排序后二分查找
+     */
+    private static final class Node {
+        private final char[] keys;
+        private final Node[] children;
+        private final Program[] programs;
+        private final boolean exact;
+
+        private Node(char[] keys, Node[] children, Program[] programs, boolean exact) {
+            this.keys = keys;
+            this.children = children;
+            this.programs = programs;
+            this.exact = exact;
+        }
+
+        private Node child(char c) {
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char key = keys[mid];
+                if (key < c) {
+                    low = mid + 1;
+                } else if (key > c) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Builder {
+        private final Map<Character, Builder> children = new TreeMap<>();
+        private final List<Program> programs = new ArrayList<>();
+        private boolean exact;
+
+        private Node build() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i++] = entry.getValue().build();
+            }
+            return new Node(keys, nodes, programs.toArray(new Program[0]), exact);
+        }
+    }
+
+    /**
+     * 表达式固定前缀之后的部分
+     */
+    private abstract static class Program {
+
+        static Program of(byte[] types, char[] chars, int from) {
+            int length = types.length - from;
+            byte[] programTypes = new byte[length];
+            char[] programChars = new char[length];
+            System.arraycopy(types, from, programTypes, 0, length);
+            System.arraycopy(chars, from, programChars, 0, length);
+            if (length <= MAX_PROGRAM_LENGTH) {
+                return new BitsetProgram(programTypes, programChars);
+            }
+            return new RegexProgram(programTypes, programChars);
+        }
+
+        /**
+         * 从from开始到结尾是否完全匹配
+         */
+        abstract boolean matches(String path, int from);
+    }
+
+    /**
+     * 位图状态机，第k位表示已匹配前k个单元
+     */
+    private static final class BitsetProgram extends Program {
+        private final byte[] types;
+        private final char[] chars;
+        private final long acceptMask;
+        private final int[] starIndexes;
+
+        private BitsetProgram(byte[] types, char[] chars) {
+            this.types = types;
+            this.chars = chars;
+            this.acceptMask = 1L << types.length;
+            int count = 0;
+            for (byte type : types) {
+                if (type == SEGMENT_STAR || type == ANY_STAR) {
+                    count++;
+                }
+            }
+            this.starIndexes = new int[count];
+            count = 0;
+            for (int k = 0; k < types.length; k++) {
+                if (types[k] == SEGMENT_STAR || types[k] == ANY_STAR) {
+                    starIndexes[count++] = k;
+                }
+            }
+        }
+
+        /**
+         * 星号可以匹配空串，处于星号前的状态同时处于星号后
+         */
+        private long closure(long state) {
+            for (int k : starIndexes) {
+                if ((state & (1L << k)) != 0) {
+                    state |= 1L << (k + 1);
+                }
+            }
+            return state;
+        }
+
+        @Override
+        boolean matches(String path, int from) {
+            long state = closure(1L);
+            int length = path.length();
+            for (int i = from; i < length; i++) {
+                char c = path.charAt(i);
+                long next = 0;
+                long remaining = state & ~acceptMask;
+                while (remaining != 0) {
+                    int k = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    switch (types[k]) {
+                        case LITERAL:
+                            if (chars[k] == c) {
+                                next |= 1L << (k + 1);
+                            }
+                            break;
+                        case ANY_CHAR:
+                            if (!isLineTerminator(c)) {
+                                next |= 1L << (k + 1);
+                            }
+                            break;
+                        case SEGMENT_STAR:
+                            if (c != '/') {
+                                next |= 1L << k;
+                            }
+                            break;
+                        default:
+                            if (!isLineTerminator(c)) {
+                                next |= 1L << k;
+                            }
+                            break;
+                    }
+                }
+                if (next == 0) {
+                    return false;
+                }
+                state = closure(next);
+            }
+            return (state & acceptMask) != 0;
+        }
+    }
+
+    /**
+     * 超长表达式退回正则，字面字符按原样匹配
+     */
+    private static final class RegexProgram extends Program {
+        private final Pattern pattern;
+
+        private RegexProgram(byte[] types, char[] chars) {
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < types.length; k++) {
+                switch (types[k]) {
+                    case LITERAL:
+                        sb.append(Pattern.quote(String.valueOf(chars[k])));
+                        break;
+                    case ANY_CHAR:
+                        sb.append('.');
+                        break;
+                    case SEGMENT_STAR:
+                        sb.append("[^/]*");
+                        break;
+                    default:
+                        sb.append(".*");
+                        break;
+                }
+            }
+            this.pattern = Pattern.compile(sb.toString());
+        }
+
+        @Override
+        boolean matches(String path, int from) {
+            return pattern.matcher(path).region(from, path.length()).matches();
+        }
+    }
+}
@@ -5,6 +5,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 public class RedissonUtil {
@@ -15,6 +17,23 @@ public class RedissonUtil {
     private static RedissonClient redissonClient = SpringUtils
             .getBean(RedissonClient.class);
 
+    /**
+     * 号段计数器默认最小号段长度
+     */
+    public static final long SEGMENT_MIN_STEP = 10;
+
+    /**
+     * 号段计数器默认最大号段长度
+     */
+    public static final long SEGMENT_MAX_STEP = 100000;
+
+    /**
+     * 号段计数器默认单段目标使用时长(毫秒)
+     */
+    public static final long SEGMENT_TARGET_MILLIS = 10000;
+
+    private static final ConcurrentMap<String, SegmentCounter> SEGMENT_COUNTERS = new ConcurrentHashMap<>();
+
     private RedissonUtil() {
     }
 
@@ -135,6 +154,30 @@ public class RedissonUtil {
         return rAtomicLong;
     }
 
+    /**
+     * 获取号段计数器，与 getRAtomicLong(key) 使用同一个原子数，按号段批量预留后在本地发放。
+     * 号段长度 {@link #SEGMENT_MIN_STEP} 到 {@link #SEGMENT_MAX_STEP}，每段目标使用 {@link #SEGMENT_TARGET_MILLIS} 毫秒
+     *
+     * @param key
+     * @return
+     */
+    public static SegmentCounter getSegmentCounter(String key) {
+        return getSegmentCounter(key, SEGMENT_MIN_STEP, SEGMENT_MAX_STEP, SEGMENT_TARGET_MILLIS);
+    }
+
+    /**
+     * 获取号段计数器，同一个key只在首次获取时按参数创建，之后返回已创建的计数器
+     *
+     * @param key
+     * @param minStep      最小号段长度，也是重启时最少跳过的值个数
+     * @param maxStep      最大号段长度，越大访问redis越少，重启时可能跳过的值越多
+     * @param targetMillis 期望单个号段的使用时长(毫秒)
+     * @return
+     */
+    public static SegmentCounter getSegmentCounter(String key, long minStep, long maxStep, long targetMillis) {
+        return SEGMENT_COUNTERS.computeIfAbsent(key, k -> new SegmentCounter(getRAtomicLong(k), minStep, maxStep, targetMillis));
+    }
+
     /**
      * 获取记数锁
      *
@@ -0,0 +1,143 @@
+package com.mdx.common.util;
+
+import org.redisson.api.RAtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段计数器
+ * <p>
+ * 每次通过 addAndGet(N) 从redis原子数预留N个值，在本地无锁发放；当前号段用到80%时异步预取下一段，
+ * 号段长度按消耗速度自动伸缩，使每段大约维持 targetMillis。
+ * 发放的值全局唯一，单节点内递增；多节点之间不保证顺序，节点重启时未用完的值会被跳过
+ */
+public class SegmentCounter {
+    private static final Logger log = LoggerFactory.getLogger(SegmentCounter.class);
+
+    private static final int PREFETCH_PERCENT = 80;
+
+    private final RAtomicLong atomicLong;
+
+    private final long minStep;
+
+    private final long maxStep;
+
+    private final long targetNanos;
+
+    private volatile Segment current = new Segment(0, 0);
+
+    private volatile CompletableFuture<Segment> prefetched;
+
+    private long step;
+
+    private long lastAllocateTime;
+
+    /**
+     * @param atomicLong   redis原子数
+     * @param minStep      最小号段长度
+     * @param maxStep      最大号段长度
+     * @param targetMillis 期望单个号段的使用时长(毫秒)
+     */
+    public SegmentCounter(RAtomicLong atomicLong, long minStep, long maxStep, long targetMillis) {
+        if (minStep <= 0 || maxStep < minStep) {
+            throw new IllegalArgumentException("号段长度配置错误");
+        }
+        this.atomicLong = atomicLong;
+        this.minStep = minStep;
+        this.maxStep = maxStep;
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+        this.step = minStep;
+    }
+
+    /**
+     * 获取下一个值
+     *
+     * @return 计数值
+     */
+    public long next() {
+        while (true) {
+            Segment segment = current;
+            long value = segment.cursor.incrementAndGet();
+            if (value <= segment.max) {
+                if (value == segment.prefetchAt) {
+                    prefetch();
+                }
+                return value;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 当前号段长度
+     */
+    public synchronized long getStep() {
+        return step;
+    }
+
+    private void prefetch() {
+        synchronized (this) {
+            if (prefetched != null) {
+                return;
+            }
+            long size = nextStep();
+            prefetched = atomicLong.addAndGetAsync(size).toCompletableFuture()
+                    .thenApply(max -> new Segment(max - size, max));
+        }
+    }
+
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        CompletableFuture<Segment> pending = prefetched;
+        prefetched = null;
+        if (pending != null) {
+            try {
+                current = pending.join();
+                return;
+            } catch (Exception e) {
+                log.warn("号段预取失败，同步获取", e);
+            }
+        }
+        long size = nextStep();
+        long max = atomicLong.addAndGet(size);
+        current = new Segment(max - size, max);
+    }
+
+    /**
+     * 根据距上次分配的间隔调整号段长度：用得太快翻倍，太慢减半
+     */
+    private long nextStep() {
+        long now = System.nanoTime();
+        if (lastAllocateTime != 0) {
+            long elapsed = now - lastAllocateTime;
+            if (elapsed < targetNanos / 2) {
+                step = Math.min(maxStep, step * 2);
+            } else if (elapsed > targetNanos * 2) {
+                step = Math.max(minStep, step / 2);
+            }
+        }
+        lastAllocateTime = now;
+        return step;
+    }
+
+    /**
+     * 号段 (max - size, max]
+     */
+    private static final class Segment {
+        private final AtomicLong cursor;
+        private final long max;
+        private final long prefetchAt;
+
+        private Segment(long start, long max) {
+            this.cursor = new AtomicLong(start);
+            this.max = max;
+            this.prefetchAt = start + Math.max(1, (max - start) * PREFETCH_PERCENT / 100);
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.mdx.common.util;
 
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class StringUtil {
 
+    /**
+     * 跳过鉴权地址缓存的最大列表数，超出后清空重建，避免调用方每次传入不同内容时无限增长
+     */
+    private static final int MAX_COMPILED_SKIP_AUTH_URLS = 64;
+
+    /**
+     * 按地址列表内容缓存的编译结果，多处调用传入不同列表时各自复用
+     */
+    private static final Map<List<String>, PathMatcherSet> COMPILED_SKIP_AUTH_URLS = new ConcurrentHashMap<>();
+
     /**
      * 将通配符表达式转化为正则表达式
      *
@@ -42,13 +55,37 @@ public class StringUtil {
         return sb.toString();
     }
 
+    /**
+     * 判断请求地址是否需要跳过鉴权，地址列表按内容缓存编译结果，每次调用需按内容计算哈希并比较
+     *
+     * @param reqPath      请求地址
+     * @param skipAuthUrls 需要跳过的地址
+     * @return 需要跳过返回true
+     * @deprecated 启动时用 {@link PathMatcherSet#compile(String...)} 编译一次，改用 {@link #checkSkipAuthUrls(String, PathMatcherSet)}
+     */
+    @Deprecated
     public static boolean checkSkipAuthUrls(String reqPath,String[] skipAuthUrls) {
-        for (String skipAuthUrl:skipAuthUrls) {
-            if(wildcardEquals(skipAuthUrl, reqPath)) {
-                return true;
+        PathMatcherSet matcher = COMPILED_SKIP_AUTH_URLS.get(Arrays.asList(skipAuthUrls));
+        if (matcher == null) {
+            if (COMPILED_SKIP_AUTH_URLS.size() >= MAX_COMPILED_SKIP_AUTH_URLS) {
+                COMPILED_SKIP_AUTH_URLS.clear();
             }
+            String[] copy = skipAuthUrls.clone();
+            matcher = PathMatcherSet.compile(copy);
+            COMPILED_SKIP_AUTH_URLS.put(Arrays.asList(copy), matcher);
         }
-        return false;
+        return matcher.matches(reqPath);
+    }
+
+    /**
+     * 判断请求地址是否需要跳过鉴权
+     *
+     * @param reqPath      请求地址
+     * @param skipAuthUrls 预编译的跳过地址，见 {@link PathMatcherSet#compile(String...)}
+     * @return 需要跳过返回true
+     */
+    public static boolean checkSkipAuthUrls(String reqPath, PathMatcherSet skipAuthUrls) {
+        return skipAuthUrls.matches(reqPath);
     }
 
     /**
@@ -59,7 +96,6 @@ public class StringUtil {
      * @return
      */
     public static boolean wildcardEquals(String skipAuthUrl, String reqPath) {
-        String regPath = getRegPath(skipAuthUrl);
-        return Pattern.compile(regPath).matcher(reqPath).matches();
+        return PathMatcherSet.compile(skipAuthUrl).matches(reqPath);
     }
 }
@@ -257,7 +257,10 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
 
     /**
      * 生产指定位数随机数
+     *
+     * @deprecated 高并发和多节点下可能重复，使用 {@link com.mdx.common.manager.IdManager#nextNo(String, int)}
      */
+    @Deprecated
     public static String getRandomNo(String head, int length) {
         if (length < 18) {
 //            throw new BizException("位数最低为18位");
@@ -452,7 +455,7 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils {
      * @return
      */
     public static String getTimeStamp() {
-        return String.valueOf(System.currentTimeMillis());
+        return CachedClock.epochMillis();
     }
 
     /**
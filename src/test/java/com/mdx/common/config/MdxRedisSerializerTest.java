@@ -0,0 +1,162 @@
+package com.mdx.common.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * MdxRedisSerializer 各版本格式的读写兼容
+ */
+class MdxRedisSerializerTest {
+
+    private static final int ORDER_TYPE_ID = 1;
+
+    @Test
+    void defaultFormatMatchesLegacyJson() throws Exception {
+        Order order = sampleOrder();
+        byte[] legacy = MdxRedisSerializer.typedObjectMapper(new JsonFactory()).writeValueAsBytes(order);
+
+        assertArrayEquals(legacy, new MdxRedisSerializer(new MdxRedisProperties.Serializer()).serialize(order));
+    }
+
+    @Test
+    void registeredSerializerReadsLegacyJson() throws Exception {
+        Order order = sampleOrder();
+        byte[] legacy = MdxRedisSerializer.typedObjectMapper(new JsonFactory()).writeValueAsBytes(order);
+
+        assertOrder(order, serializer(MdxRedisProperties.Format.JSON, RedisCompression.NONE).deserialize(legacy));
+    }
+
+    @Test
+    void registeredTypeKeepsNestedTypes() {
+        MdxRedisSerializer serializer = serializer(MdxRedisProperties.Format.JSON, RedisCompression.NONE);
+        Order order = sampleOrder();
+
+        byte[] bytes = serializer.serialize(order);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+
+        assertEquals(MdxRedisSerializer.MAGIC, bytes[0]);
+        assertFalse(text.contains(Order.class.getName()));
+        assertTrue(text.contains(Address.class.getName()));
+        assertOrder(order, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void readsRegisteredFramesWithoutNestedTypes() throws Exception {
+        Order order = new Order();
+        order.no = "SO1";
+        order.extra = "text";
+        order.tags = new ArrayList<>(Arrays.asList("a", "b"));
+        ObjectMapper plain = new ObjectMapper();
+        plain.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        byte[] json = plain.writeValueAsBytes(order);
+        byte[] frame = new byte[3 + json.length];
+        frame[0] = MdxRedisSerializer.MAGIC;
+        frame[1] = 1;
+        frame[2] = ORDER_TYPE_ID;
+        System.arraycopy(json, 0, frame, 3, json.length);
+
+        Object value = serializer(MdxRedisProperties.Format.JSON, RedisCompression.NONE).deserialize(frame);
+
+        assertTrue(value instanceof Order);
+        assertEquals("SO1", ((Order) value).no);
+        assertEquals("text", ((Order) value).extra);
+        assertEquals(order.tags, ((Order) value).tags);
+    }
+
+    @Test
+    void compressedFramesRoundTrip() {
+        for (RedisCompression compression : Arrays.asList(RedisCompression.LZ4, RedisCompression.ZSTD)) {
+            MdxRedisSerializer serializer = serializer(MdxRedisProperties.Format.JSON, compression);
+            Order order = sampleOrder();
+            order.tags = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                order.tags.add("tag-" + i);
+            }
+            Address unregistered = new Address("shanghai");
+
+            byte[] registeredBytes = serializer.serialize(order);
+            byte[] unregisteredBytes = serializer.serialize(unregistered);
+
+            assertNotEquals(0, registeredBytes[1] & 0x30);
+            assertOrder(order, serializer.deserialize(registeredBytes));
+            assertEquals("shanghai", ((Address) serializer.deserialize(unregisteredBytes)).city);
+        }
+    }
+
+    @Test
+    void smileFramesRoundTrip() {
+        MdxRedisSerializer serializer = serializer(MdxRedisProperties.Format.SMILE, RedisCompression.LZ4);
+        Order order = sampleOrder();
+
+        assertOrder(order, serializer.deserialize(serializer.serialize(order)));
+        assertEquals("hangzhou", ((Address) serializer.deserialize(serializer.serialize(new Address("hangzhou")))).city);
+    }
+
+    @Test
+    void unknownTypeIdFails() {
+        byte[] frame = {MdxRedisSerializer.MAGIC, 1, 9, '{', '}'};
+
+        assertThrows(RuntimeException.class, () -> serializer(MdxRedisProperties.Format.JSON, RedisCompression.NONE).deserialize(frame));
+    }
+
+    private static MdxRedisSerializer serializer(MdxRedisProperties.Format format, RedisCompression compression) {
+        MdxRedisProperties.Serializer properties = new MdxRedisProperties.Serializer();
+        properties.setFormat(format);
+        properties.setCompression(compression);
+        properties.setCompressThreshold(0);
+        properties.getTypeIds().put(ORDER_TYPE_ID, Order.class.getName());
+        return new MdxRedisSerializer(properties);
+    }
+
+    private static Order sampleOrder() {
+        Order order = new Order();
+        order.no = "SO202410181230450001";
+        order.extra = new Address("beijing");
+        order.tags = new ArrayList<>(Arrays.asList("new", "paid"));
+        order.address = new Address("shenzhen");
+        return order;
+    }
+
+    private static void assertOrder(Order expected, Object actual) {
+        assertTrue(actual instanceof Order);
+        Order order = (Order) actual;
+        assertEquals(expected.no, order.no);
+        assertEquals(expected.tags, order.tags);
+        assertTrue(order.extra instanceof Address);
+        assertEquals(((Address) expected.extra).city, ((Address) order.extra).city);
+        assertEquals(expected.address.city, order.address.city);
+    }
+
+    static class Order {
+        private String no;
+        private Object extra;
+        private List<String> tags;
+        private Address address;
+    }
+
+    static class Address {
+        private String city;
+
+        Address() {
+        }
+
+        Address(String city) {
+            this.city = city;
+        }
+    }
+}
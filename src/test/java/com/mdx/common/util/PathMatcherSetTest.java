@@ -0,0 +1,124 @@
+package com.mdx.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PathMatcherSet 与 Pattern.compile(StringUtil.getRegPath(p)) 的匹配结果一致性
+ */
+class PathMatcherSetTest {
+
+    private static final int CASES = 200_000;
+
+    private static final String PATTERN_CHARS = "ab/.*?\n";
+
+    private static final String PATH_CHARS = "abc/.\n";
+
+    private static final String[] REGEX_TOKENS = {"[ab]", "(a|b)", "b+"};
+
+    @Test
+    void matchesGetRegPathRegex() {
+        Random random = new Random(20241018L);
+        for (int i = 0; i < CASES; i++) {
+            String[] patterns = new String[1 + random.nextInt(3)];
+            Pattern[] regexes = new Pattern[patterns.length];
+            for (int j = 0; j < patterns.length; j++) {
+                patterns[j] = randomPattern(random);
+                regexes[j] = Pattern.compile(StringUtil.getRegPath(patterns[j]));
+            }
+            String path = random.nextBoolean()
+                    ? instantiate(patterns[random.nextInt(patterns.length)], random)
+                    : randomString(random, PATH_CHARS, random.nextInt(12));
+            boolean expected = false;
+            for (Pattern regex : regexes) {
+                expected |= regex.matcher(path).matches();
+            }
+
+            assertEquals(expected, PathMatcherSet.compile(patterns).matches(path),
+                    () -> String.join(" | ", patterns).replace("\n", "\\n") + " -> " + path.replace("\n", "\\n"));
+        }
+    }
+
+    @Test
+    void longPatternsFallBackToRegex() {
+        StringBuilder pattern = new StringBuilder("/api");
+        for (int i = 0; i < 40; i++) {
+            pattern.append("/*");
+        }
+        StringBuilder path = new StringBuilder("/api");
+        for (int i = 0; i < 40; i++) {
+            path.append("/x");
+        }
+
+        assertTrue(PathMatcherSet.compile(pattern.toString()).matches(path.toString()));
+        assertFalse(PathMatcherSet.compile(pattern.toString()).matches(path + "/x"));
+    }
+
+    @Test
+    void deprecatedOverloadKeepsEachList() {
+        String[] open = {"/open/**"};
+        String[] login = {"/login", "/captcha/*"};
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(StringUtil.checkSkipAuthUrls("/open/a/b", open));
+            assertFalse(StringUtil.checkSkipAuthUrls("/login", open));
+            assertTrue(StringUtil.checkSkipAuthUrls("/captcha/1", login));
+            assertFalse(StringUtil.checkSkipAuthUrls("/captcha/1/2", login));
+        }
+        login[0] = "/logout";
+
+        assertFalse(StringUtil.checkSkipAuthUrls("/login", login));
+        assertTrue(StringUtil.checkSkipAuthUrls("/logout", login));
+    }
+
+    private static String randomPattern(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(10) == 0 ? 40 + random.nextInt(60) : random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(50) == 0) {
+                sb.append(REGEX_TOKENS[random.nextInt(REGEX_TOKENS.length)]);
+            } else {
+                sb.append(PATTERN_CHARS.charAt(random.nextInt(PATTERN_CHARS.length())));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 按通配符随机展开出一个大概率命中的地址，再随机改动一个字符
+     */
+    private static String instantiate(String pattern, Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                sb.append(randomString(random, PATH_CHARS, random.nextInt(4)));
+                i++;
+            } else if (c == '*') {
+                sb.append(randomString(random, "abc.", random.nextInt(4)));
+            } else if (c == '?' || c == '.') {
+                sb.append(PATH_CHARS.charAt(random.nextInt(PATH_CHARS.length())));
+            } else {
+                sb.append(c);
+            }
+        }
+        if (sb.length() > 0 && random.nextInt(4) == 0) {
+            sb.setCharAt(random.nextInt(sb.length()), PATH_CHARS.charAt(random.nextInt(PATH_CHARS.length())));
+        }
+        return sb.toString();
+    }
+
+    private static String randomString(Random random, String chars, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.mdx.common.benchmark;
+
+import com.mdx.common.base.BaseMqMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BaseMqMessage 构建，多线程下观察key生成的竞争，
+ * 加 -prof gc 可查看每条消息的内存分配。
+ * create 对应发送端构建(生成key)，deserialize 对应消费端反序列化(不生成key)，legacy 为原 UUID.randomUUID() 生成key的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BaseMqMessageBenchmark {
+
+    @Benchmark
+    public SampleMessage create() {
+        return new SampleMessage("SO202410181230450001");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SampleMessage createContended() {
+        return new SampleMessage("SO202410181230450001");
+    }
+
+    @Benchmark
+    public SampleMessage deserialize() {
+        return BaseMqMessage.withoutKeyGeneration(() -> new SampleMessage("SO202410181230450001"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SampleMessage deserializeContended() {
+        return deserialize();
+    }
+
+    @Benchmark
+    public SampleMessage legacy() {
+        SampleMessage message = new SampleMessage("SO202410181230450001");
+        message.setKey(UUID.randomUUID().toString());
+        return message;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SampleMessage legacyContended() {
+        return legacy();
+    }
+}
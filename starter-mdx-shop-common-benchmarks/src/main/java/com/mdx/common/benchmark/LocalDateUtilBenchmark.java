@@ -0,0 +1,56 @@
+package com.mdx.common.benchmark;
+
+import com.mdx.common.util.LocalDateUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LocalDateUtil 格式化和解析
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalDateUtilBenchmark {
+
+    private final LocalDateTime dateTime = LocalDateTime.of(2024, 10, 18, 12, 30, 45);
+
+    private final String dateTimeText = "2024-10-18 12:30:45";
+
+    @Benchmark
+    public String formatDateTime() {
+        return LocalDateUtil.localDateTimeToString(dateTime, LocalDateUtil.dateTimeformatter);
+    }
+
+    @Benchmark
+    public String formatDateTimeNoSymbol() {
+        return LocalDateUtil.localDateTimeToString(dateTime, LocalDateUtil.dateTimeNoSymbolformatter);
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return LocalDateUtil.localDateToString(dateTime.toLocalDate(), LocalDateUtil.dateformatter);
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTime() {
+        return LocalDateUtil.stringToLocalDateTime(dateTimeText, LocalDateUtil.dateTimeformatter);
+    }
+
+    @Benchmark
+    public String getNow() {
+        return LocalDateUtil.getNow(LocalDateUtil.dateTimeformatter);
+    }
+}
@@ -0,0 +1,72 @@
+package com.mdx.common.benchmark;
+
+import com.mdx.common.config.MdxRedisProperties;
+import com.mdx.common.config.MdxRedisSerializer;
+import com.mdx.common.config.RedisCompression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redisTemplate value 序列化
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisSerializerBenchmark {
+
+    /**
+     * TYPED_JSON：默认配置，json带全类名；TYPE_ID：注册类型编号；TYPE_ID_LZ4：类型编号并压缩
+     */
+    @Param({"TYPED_JSON", "TYPE_ID", "TYPE_ID_LZ4"})
+    private String mode;
+
+    @Param({"5", "50"})
+    private int itemCount;
+
+    private RedisSerializer<Object> serializer;
+
+    private SampleOrder order;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        MdxRedisProperties properties = new MdxRedisProperties();
+        MdxRedisProperties.Serializer config = properties.getSerializer();
+        if (!"TYPED_JSON".equals(mode)) {
+            config.getTypeIds().put(1, SampleOrder.class.getName());
+        }
+        if ("TYPE_ID_LZ4".equals(mode)) {
+            config.setCompression(RedisCompression.LZ4);
+            config.setCompressThreshold(512);
+        }
+        serializer = new MdxRedisSerializer(properties.getSerializer());
+        order = SampleOrder.create(itemCount);
+        bytes = serializer.serialize(order);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(order);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,82 @@
+package com.mdx.common.benchmark;
+
+import com.mdx.common.config.RocketMqTemplate;
+import org.apache.rocketmq.client.producer.SendResult;
+import org.apache.rocketmq.client.producer.SendStatus;
+import org.apache.rocketmq.spring.core.RocketMQTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RocketMqTemplate 发送时构建消息、日志等本地开销，broker由内存替身代替
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RocketMqTemplateBenchmark {
+
+    private RocketMqTemplate mqTemplate;
+
+    private SampleMessage message;
+
+    @Setup
+    public void setup() throws Exception {
+        mqTemplate = new RocketMqTemplate();
+        Field field = RocketMqTemplate.class.getDeclaredField("template");
+        field.setAccessible(true);
+        field.set(mqTemplate, new FakeRocketMQTemplate());
+        message = new SampleMessage("SO202410181230450001");
+    }
+
+    @Benchmark
+    public SendResult send() {
+        return mqTemplate.send("order-topic", "created", message);
+    }
+
+    @Benchmark
+    public SendResult sendDelay() {
+        return mqTemplate.send("order-topic", "created", message, 3);
+    }
+
+    @Benchmark
+    public SendResult sendOrderly() {
+        return mqTemplate.sendOrderly("order-topic", "created", message, message.getOrderNo());
+    }
+
+    /**
+     * 不连接broker，直接返回发送成功
+     */
+    static class FakeRocketMQTemplate extends RocketMQTemplate {
+        private static final SendResult RESULT = new SendResult(SendStatus.SEND_OK, "msgId", "offsetMsgId", null, 0);
+
+        @Override
+        public SendResult syncSend(String destination, Message<?> message) {
+            return RESULT;
+        }
+
+        @Override
+        public SendResult syncSend(String destination, Message<?> message, long timeout, int delayLevel) {
+            return RESULT;
+        }
+
+        @Override
+        public SendResult syncSendOrderly(String destination, Message<?> message, String hashKey) {
+            return RESULT;
+        }
+    }
+}
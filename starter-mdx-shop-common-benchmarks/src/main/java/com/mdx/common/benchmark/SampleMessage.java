@@ -0,0 +1,25 @@
+package com.mdx.common.benchmark;
+
+import com.mdx.common.base.BaseMqMessage;
+
+/**
+ * 基准测试使用的消息样例
+ */
+public class SampleMessage extends BaseMqMessage {
+    private String orderNo;
+
+    public SampleMessage() {
+    }
+
+    public SampleMessage(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+}
@@ -0,0 +1,124 @@
+package com.mdx.common.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试使用的订单样例
+ */
+public class SampleOrder {
+    private String orderNo;
+    private Long userId;
+    private BigDecimal payAmount;
+    private String receiverName;
+    private String receiverAddress;
+    private List<SampleOrderItem> items;
+
+    public static SampleOrder create(int itemCount) {
+        SampleOrder order = new SampleOrder();
+        order.setOrderNo("SO202410181230450001");
+        order.setUserId(10086L);
+        order.setPayAmount(new BigDecimal("1299.90"));
+        order.setReceiverName("张三");
+        order.setReceiverAddress("上海市浦东新区世纪大道100号");
+        List<SampleOrderItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            SampleOrderItem item = new SampleOrderItem();
+            item.setSkuId(100000L + i);
+            item.setSkuName("商品" + i);
+            item.setQuantity(i % 3 + 1);
+            item.setPrice(new BigDecimal("99.90"));
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public BigDecimal getPayAmount() {
+        return payAmount;
+    }
+
+    public void setPayAmount(BigDecimal payAmount) {
+        this.payAmount = payAmount;
+    }
+
+    public String getReceiverName() {
+        return receiverName;
+    }
+
+    public void setReceiverName(String receiverName) {
+        this.receiverName = receiverName;
+    }
+
+    public String getReceiverAddress() {
+        return receiverAddress;
+    }
+
+    public void setReceiverAddress(String receiverAddress) {
+        this.receiverAddress = receiverAddress;
+    }
+
+    public List<SampleOrderItem> getItems() {
+        return items;
+    }
+
+    public void setItems(List<SampleOrderItem> items) {
+        this.items = items;
+    }
+
+    public static class SampleOrderItem {
+        private Long skuId;
+        private String skuName;
+        private Integer quantity;
+        private BigDecimal price;
+
+        public Long getSkuId() {
+            return skuId;
+        }
+
+        public void setSkuId(Long skuId) {
+            this.skuId = skuId;
+        }
+
+        public String getSkuName() {
+            return skuName;
+        }
+
+        public void setSkuName(String skuName) {
+            this.skuName = skuName;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public void setPrice(BigDecimal price) {
+            this.price = price;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.mdx.common.benchmark;
+
+import com.mdx.common.util.PathMatcherSet;
+import com.mdx.common.util.StringUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关跳过鉴权地址匹配
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringUtilBenchmark {
+
+    private final String[] skipAuthUrls = {
+            "/auth/login",
+            "/auth/logout",
+            "/auth/captcha/*",
+            "/user/register",
+            "/product/**",
+            "/category/list",
+            "/doc.html",
+            "/webjars/**",
+            "/swagger-resources/**",
+            "/v?/api-docs"
+    };
+
+    private final PathMatcherSet skipAuthMatcher = PathMatcherSet.compile(skipAuthUrls);
+
+    @Benchmark
+    public boolean matchFirst() {
+        return StringUtil.checkSkipAuthUrls("/auth/login", skipAuthMatcher);
+    }
+
+    @Benchmark
+    public boolean matchWildcard() {
+        return StringUtil.checkSkipAuthUrls("/swagger-resources/configuration/ui", skipAuthMatcher);
+    }
+
+    @Benchmark
+    public boolean noMatch() {
+        return StringUtil.checkSkipAuthUrls("/order/detail/20241018123045", skipAuthMatcher);
+    }
+}
@@ -0,0 +1,36 @@
+package com.mdx.common.benchmark;
+
+import com.mdx.common.util.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 驼峰和下划线命名转换
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringUtilsBenchmark {
+
+    @Benchmark
+    public String humpToLine() {
+        return StringUtils.humpToLine("receiverDetailAddressName");
+    }
+
+    @Benchmark
+    public String toCamelCase() {
+        return StringUtils.toCamelCase("receiver_detail_address_name");
+    }
+}